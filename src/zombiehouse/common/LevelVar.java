@@ -1,9 +1,17 @@
 package zombiehouse.common;
 
+import zombiehouse.level.house.Landmarks;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.level.house.RoomGraph;
 import zombiehouse.level.house.Tile;
+import zombiehouse.level.house.WallField;
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import zombiehouse.level.zombie.PathMode;
 import zombiehouse.level.zombie.Zombie;
+import zombiehouse.level.zombie.ZombieGrid;
+import zombiehouse.level.zombie.ZombieStore;
 
 /**
  * @author Rob
@@ -22,6 +30,30 @@ public class LevelVar
    */
   public static Tile[][] house;
   
+  /**
+   * The walkable layout of house packed for path finding
+   * built by Level once the house is generated (see NavGraph.forHouse)
+   */
+  public static NavGraph navGraph;
+  
+  /**
+   * The Rooms and Zones of house and how they connect
+   * built by Level alongside navGraph
+   */
+  public static RoomGraph roomGraph;
+  
+  /**
+   * Distances from a few landmark Tiles of house, used as the A* heuristic
+   * built by Level alongside navGraph
+   */
+  public static Landmarks landmarks;
+  
+  /**
+   * Distance from every point of house to the nearest Wall, used for
+   * collisions; built by Level alongside navGraph
+   */
+  public static WallField wallField;
+  
   /**
    * Contains a complete list of Zombies spawned in the current level
    * The zombieCollection is used by both graphics and zombies
@@ -29,6 +61,27 @@ public class LevelVar
    */
   public static ArrayList<Zombie> zombieCollection;
   
+  /**
+   * The slots of zombieStore bucketed by where they are, for finding the
+   * Zombies near a point (see ZombieGrid); built by Level alongside navGraph
+   * and kept up to date by whatever moves a Zombie
+   */
+  public static ZombieGrid zombieGrid;
+  
+  /**
+   * The components of the Zombies of zombieCollection (position, heading,
+   * speed, state, smell, path and render state) in parallel arrays that the
+   * ZombieSystems loop over (see ZombieStore); a new one is made by Level
+   * for every house and the Zombies add themselves to it
+   */
+  public static ZombieStore zombieStore;
+  
+  /**
+   * The last WorldSnapshot the game published: what the Zombie AI sees of
+   * the house, the Player and the Zombies (see WorldSnapshot)
+   */
+  public static final AtomicReference<WorldSnapshot> world = new AtomicReference<WorldSnapshot>();
+  
   /**
    * Is the single instance of Random used by all of level generation
    * (It's seed is saved in level as it is not as public a variable)
@@ -85,6 +138,63 @@ public class LevelVar
    */
   public static final boolean ZOMBIE_DEBUG_TEXT = false;
   
+  /**
+   * A debugging flag
+   * When true, the AIScheduler prints the first exception a Zombie throws
+   * each level and, when the level stops, how long its slices took and how
+   * many failed or ran over
+   */
+  public static boolean AI_DEBUG_TEXT = true;
+  
+  /**
+   * How Zombies that smell the player find their way to it (see PathMode):
+   * by default they follow the shared FlowField rooted at the player
+   * Can be changed between levels; restartLevel() rebuilds the same house
+   * so the searches can be compared on the same seed
+   */
+  public static PathMode pathMode = PathMode.FLOW_FIELD;
+  
+  /**
+   * A debugging flag
+   * When true, Zombies share the shortest paths they find through a PathCache
+   * (emptied whenever a new house is built); used by the pathModes that find
+   * whole paths: ASTAR, ASTAR_ASYNC and JUMP_POINT
+   */
+  public static boolean PATH_CACHE = true;
+  
+  /**
+   * A debugging flag
+   * When true, A* uses the landmark (ALT) lower bound as its heuristic
+   * instead of only the Manhattan distance (pathMode ASTAR, ASTAR_ASYNC and
+   * HIERARCHICAL)
+   */
+  public static boolean ALT_HEURISTIC = true;
+  
+  /**
+   * A debugging flag
+   * When true, Zombie paths are cut down to line of sight waypoints
+   * (see PathSmoother) so Zombies walk straight lines between turns
+   */
+  public static boolean SMOOTH_PATHS = true;
+  
+  /**
+   * When true, the AIScheduler decides less often for Zombies far from the
+   * player and not at all for ones further than AI_DORMANT_RADIUS (see AITier)
+   */
+  public static boolean AI_LOD = true;
+  
+  /**
+   * Zombies within this many Tiles of the player decide every turn; it is
+   * more than a Zombie's smell (15 steps), so every Zombie that could smell
+   * the player is always in it
+   */
+  public static double AI_NEAR_RADIUS = 16;
+  
+  /**
+   * Zombies further than this many Tiles from the player don't decide
+   */
+  public static double AI_DORMANT_RADIUS = 32;
+  
   /**
    * Walking speed of zombies
    */
@@ -0,0 +1,183 @@
+package zombiehouse.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.level.house.Tile;
+import zombiehouse.level.zombie.SmellSystem;
+import zombiehouse.level.zombie.Zombie;
+import zombiehouse.level.zombie.ZombieStore;
+
+/**
+ * WorldSnapshot is what the Zombie AI gets to see of the game: the house,
+ * the Player's position and every Zombie's position, heading, whether it
+ * has collided and how far it is from the Player's scent, as of one moment.
+ *
+ * The game (the Simulation, on the FX thread) owns the real positions and
+ * keeps changing them; the AI decides on other threads. Instead of both
+ * reading and writing the same fields, the game publishes a new snapshot
+ * into LevelVar.world after it moves things (publish()), and the AI reads
+ * whichever snapshot was last published. A snapshot is never changed after
+ * it is made, so any number of AI threads can read it without locks, and a
+ * level being replaced can't pull a list out from under them. The snapshot
+ * being read and the live state being written are the two buffers; swapping
+ * is a single atomic set.
+ *
+ * Zombies' state is indexed by zombieID, which is their place in the
+ * level's list (Level numbers them from 0 as they are added).
+ *
+ * private:
+ * step - the Simulation step the snapshot was taken after
+ * house, graph - the level's Tiles and their NavGraph
+ * zombies - the level's Zombies (unmodifiable)
+ * playerX, playerY - the Player's position
+ * zombieX, zombieY - the Zombies' positions by zombieID
+ * zombieHeading - the Zombies' headings by zombieID
+ * zombieCollided - whether each Zombie had collided, by zombieID
+ * zombieScent - each Zombie's distance from the Player's scent, by zombieID
+ * scentDepth - how far out the scent was measured
+ *
+ * private static final:
+ * smell - the SmellSystem measuring the scent for each publish()
+ */
+public final class WorldSnapshot
+{
+  private final long step;
+  private final Tile[][] house;
+  private final NavGraph graph;
+  private final List<Zombie> zombies;
+  private final double playerX, playerY;
+  private final double[] zombieX, zombieY;
+  private final double[] zombieHeading;
+  private final boolean[] zombieCollided;
+  private final int[] zombieScent;
+  private final int scentDepth;
+
+  private static final SmellSystem smell = new SmellSystem();
+
+  private WorldSnapshot(long step)
+  {
+    this.step = step;
+    this.house = LevelVar.house;
+    this.graph = LevelVar.navGraph;
+    this.zombies = Collections.unmodifiableList(new ArrayList<Zombie>(LevelVar.zombieCollection));
+    this.playerX = Player.xPosition;
+    this.playerY = Player.yPosition;
+    this.zombieX = new double[zombies.size()];
+    this.zombieY = new double[zombies.size()];
+    this.zombieHeading = new double[zombies.size()];
+    this.zombieCollided = new boolean[zombies.size()];
+    this.zombieScent = new int[zombies.size()];
+    ZombieStore levelStore = LevelVar.zombieStore;
+    this.scentDepth = (levelStore == null || house == null) ? -1 : levelStore.getMaxSmellRange();
+    for(Zombie zombie : zombies)
+    {
+      if(zombie.zombieID < 0 || zombie.zombieID >= zombieX.length) { continue; }
+      ZombieStore store = zombie.getStore();
+      int slot = zombie.getSlot();
+      zombieX[zombie.zombieID] = store.getX(slot);
+      zombieY[zombie.zombieID] = store.getY(slot);
+      zombieHeading[zombie.zombieID] = store.getHeading(slot);
+      zombieCollided[zombie.zombieID] = store.is(slot, ZombieStore.COLLIDED);
+      zombieScent[zombie.zombieID] = (store == levelStore) ? store.getScent(slot) : Integer.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Takes a snapshot of the game as it is now and makes it the one the AI
+   * sees, measuring every Zombie's scent first (see SmellSystem); only the
+   * thread moving things should call this
+   * @param step the Simulation step just finished
+   * @return the snapshot published
+   */
+  public static WorldSnapshot publish(long step)
+  {
+    smell.sense(LevelVar.zombieStore, LevelVar.house, Player.xPosition, Player.yPosition);
+    WorldSnapshot snapshot = new WorldSnapshot(step);
+    LevelVar.world.set(snapshot);
+    return snapshot;
+  }
+
+  public long getStep() { return step; }
+
+  public Tile[][] getHouse() { return house; }
+
+  public NavGraph getGraph() { return graph; }
+
+  public List<Zombie> getZombies() { return zombies; }
+
+  public double getPlayerX() { return playerX; }
+
+  public double getPlayerY() { return playerY; }
+
+  /**
+   * @return the Tile the Player was in, or null if that wasn't in the house
+   */
+  public Tile getPlayerTile() { return getTile(playerX, playerY); }
+
+  /**
+   * @return the zombie's X coordinate, or its live one if it isn't in the snapshot
+   */
+  public double getX(Zombie zombie)
+  {
+    return contains(zombie) ? zombieX[zombie.zombieID] : zombie.getPositionX();
+  }
+
+  /**
+   * @return the zombie's Y coordinate, or its live one if it isn't in the snapshot
+   */
+  public double getY(Zombie zombie)
+  {
+    return contains(zombie) ? zombieY[zombie.zombieID] : zombie.getPositionY();
+  }
+
+  /**
+   * @return the zombie's heading, or its live one if it isn't in the snapshot
+   */
+  public double getHeading(Zombie zombie)
+  {
+    return contains(zombie) ? zombieHeading[zombie.zombieID] : zombie.getStore().getHeading(zombie.getSlot());
+  }
+
+  /**
+   * @return whether the zombie had collided, or whether it has if it isn't
+   *         in the snapshot
+   */
+  public boolean isCollided(Zombie zombie)
+  {
+    return contains(zombie) ? zombieCollided[zombie.zombieID] : zombie.getStore().is(zombie.getSlot(), ZombieStore.COLLIDED);
+  }
+
+  /**
+   * @return how many steps the zombie was from the Player's scent (over
+   *         getScentDepth() counts as too far to say), or Integer.MAX_VALUE
+   *         if it isn't in the snapshot
+   */
+  public int getScent(Zombie zombie)
+  {
+    return contains(zombie) ? zombieScent[zombie.zombieID] : Integer.MAX_VALUE;
+  }
+
+  /**
+   * @return how many steps out from the Player the scent was measured (-1
+   *         if it wasn't)
+   */
+  public int getScentDepth() { return scentDepth; }
+
+  /**
+   * @return the Tile the zombie was in, or null if that wasn't in the house
+   */
+  public Tile getTile(Zombie zombie) { return getTile(getX(zombie), getY(zombie)); }
+
+  private boolean contains(Zombie zombie)
+  {
+    return zombie.zombieID >= 0 && zombie.zombieID < zombies.size() && zombies.get(zombie.zombieID) == zombie;
+  }
+
+  private Tile getTile(double x, double y)
+  {
+    if(house == null || x < 0 || y < 0 || (int)x >= house.length || (int)y >= house[0].length) { return null; }
+    return house[(int)x][(int)y];
+  }
+}
@@ -24,12 +24,16 @@ import zombiehouse.audio.DirectionalPlayer;
 import zombiehouse.common.InputContainer;
 import zombiehouse.common.LevelVar;
 import zombiehouse.common.Player;
+import zombiehouse.level.Simulation;
 import zombiehouse.level.house.Exit;
 import zombiehouse.level.house.Level;
 import zombiehouse.level.house.Tile;
 import zombiehouse.level.house.Wall;
-import zombiehouse.level.zombie.ZTimer;
+import zombiehouse.level.zombie.AIScheduler;
+import zombiehouse.level.zombie.AnimationSystem;
 import zombiehouse.level.zombie.Zombie;
+import zombiehouse.level.zombie.ZombieStore;
+import zombiehouse.level.zombie.ZombieSystems;
 
 
 /**
@@ -39,7 +43,7 @@ import zombiehouse.level.zombie.Zombie;
  * WASD used for traditional movement, mouse swivels the camera.
  * 
  * Player cannot move through walls, and zombie collisions trigger
- * a level reset.
+ * a level reset (see Simulation).
  * 
  * @author Maxwell Sanchez
  *
@@ -53,8 +57,6 @@ public class MainApplication extends Application
   
   private double cameraYRotation = 0;
   
-  private static final double TARGET_FRAMES_PER_SECOND = 60;
-  
   private static final double PLAYER_TURN_SPEED = 0.07;
   private static final double PLAYER_TURN_SMOOTHING = 0.36;
   
@@ -62,13 +64,10 @@ public class MainApplication extends Application
   private static final double CEILING_Y_DISPLACEMENT = -600;
   private static final double WALL_HEIGHT = 600;
   private static final double TILE_WIDTH_AND_HEIGHT = 400;
-  private static final double WALL_COLLISION_OFFSET = 0.25;
   
   private static final int WINDOW_WIDTH = 1260;
   private static final int WINDOW_HEIGHT = 900;
   
-  private static final int ZOMBIE_ACTIVATION_DISTANCE = 14;
-  
   private static final PhongMaterial floorMaterial1 = new PhongMaterial();
   private static final PhongMaterial floorMaterial2 = new PhongMaterial();
   private static final PhongMaterial floorMaterial3 = new PhongMaterial();
@@ -78,6 +77,10 @@ public class MainApplication extends Application
   private static final PhongMaterial exitMaterial = new PhongMaterial();
   
   private Level level;
+  private Simulation simulation;
+  
+  // Runs the zombies' decisions for whichever level is being played
+  private final AIScheduler aiScheduler = new AIScheduler();
   private Stage stage;
   
   private PointLight pl;
@@ -107,7 +110,11 @@ public class MainApplication extends Application
   @Override
   public void start(Stage stage) throws Exception 
   {
-    stage.setOnCloseRequest(event -> System.exit(0));
+    stage.setOnCloseRequest(event ->
+    {
+      aiScheduler.shutdown();
+      System.exit(0);
+    });
     this.stage = stage;
     
     // Create group to hold 3D objects
@@ -123,6 +130,7 @@ public class MainApplication extends Application
     level = new Level();
     level.nextLevel();
     level.fullGen();
+    simulation = new Simulation(level, aiScheduler);
     
     // Create a "lantern" for the user
     pl = new PointLight(Color.WHITE);
@@ -179,12 +187,12 @@ public class MainApplication extends Application
       }
       else if (keycode == KeyCode.ESCAPE)
       {
+        aiScheduler.shutdown();
         System.exit(0);
       }
       else if (keycode == KeyCode.F3) /* Cheat key to advance levels */
       {
-        level.nextLevel();
-        rebuildLevel();
+        simulation.nextLevel();
       }
     });
 
@@ -294,6 +302,8 @@ public class MainApplication extends Application
   
   /**
    * Sets up the 3D objects to represent a 2D Tile[][] house in a 3D world.
+   * Tile (x, z) covers [x, x + 1) by [z, z + 1) of the house (see WallField),
+   * so its boxes are centered half a Tile in.
    */
   public void setupLevel()
   {
@@ -311,15 +321,15 @@ public class MainApplication extends Application
         else                       { floor.setMaterial(floorMaterial4); }
         
         floor.setTranslateY(FLOOR_Y_DISPLACEMENT);
-        floor.setTranslateX(x * TILE_WIDTH_AND_HEIGHT);
-        floor.setTranslateZ(z * TILE_WIDTH_AND_HEIGHT);
+        floor.setTranslateX((x + 0.5) * TILE_WIDTH_AND_HEIGHT);
+        floor.setTranslateZ((z + 0.5) * TILE_WIDTH_AND_HEIGHT);
         sceneRoot.getChildren().add(floor);
         
         Box ceiling = new Box(TILE_WIDTH_AND_HEIGHT, 10, TILE_WIDTH_AND_HEIGHT);
         ceiling.setMaterial(ceilingMaterial);
         ceiling.setTranslateY(CEILING_Y_DISPLACEMENT);
-        ceiling.setTranslateX(x * TILE_WIDTH_AND_HEIGHT);
-        ceiling.setTranslateZ(z * TILE_WIDTH_AND_HEIGHT);
+        ceiling.setTranslateX((x + 0.5) * TILE_WIDTH_AND_HEIGHT);
+        ceiling.setTranslateZ((z + 0.5) * TILE_WIDTH_AND_HEIGHT);
         sceneRoot.getChildren().add(ceiling);
           
         // If wall, place a ground-to-ceiling wall box
@@ -328,8 +338,8 @@ public class MainApplication extends Application
           Box wall = new Box(TILE_WIDTH_AND_HEIGHT, WALL_HEIGHT, TILE_WIDTH_AND_HEIGHT);
           wall.setMaterial(wallMaterial);
           wall.setTranslateY(-WALL_HEIGHT / 2);
-          wall.setTranslateX(x * TILE_WIDTH_AND_HEIGHT);
-          wall.setTranslateZ(z * TILE_WIDTH_AND_HEIGHT);
+          wall.setTranslateX((x + 0.5) * TILE_WIDTH_AND_HEIGHT);
+          wall.setTranslateZ((z + 0.5) * TILE_WIDTH_AND_HEIGHT);
           sceneRoot.getChildren().add(wall);
         }
 
@@ -339,8 +349,8 @@ public class MainApplication extends Application
           Box exit = new Box(TILE_WIDTH_AND_HEIGHT, WALL_HEIGHT, TILE_WIDTH_AND_HEIGHT);
           exit.setMaterial(exitMaterial);
           exit.setTranslateY(-WALL_HEIGHT / 2);
-          exit.setTranslateX(x * TILE_WIDTH_AND_HEIGHT);
-          exit.setTranslateZ(z * TILE_WIDTH_AND_HEIGHT);
+          exit.setTranslateX((x + 0.5) * TILE_WIDTH_AND_HEIGHT);
+          exit.setTranslateZ((z + 0.5) * TILE_WIDTH_AND_HEIGHT);
           sceneRoot.getChildren().add(exit);
         }
       }
@@ -349,12 +359,11 @@ public class MainApplication extends Application
     // Add all of the 3D zombie objects
     for (Zombie zombie : LevelVar.zombieCollection)
     {
-      sceneRoot.getChildren().add(zombie.zombie3D);
+      sceneRoot.getChildren().add(zombie.getZombie3D());
     }
     
-    // Create a zombie update timer
-    ZTimer zMoves = new ZTimer();
-    zMoves.zUpdateTimer.schedule(zMoves.myUpdate, Zombie.getDecisionRate(), Zombie.getDecisionRate());
+    // Start deciding for this level's zombies (stops the last level's)
+    aiScheduler.startLevel(LevelVar.zombieCollection, Zombie.getDecisionRate());
     
   }
   
@@ -362,130 +371,73 @@ public class MainApplication extends Application
    * 
    * @author Maxwell Sanchez
    * 
-   * GameLoop handles the primary game animation frame timing.
+   * GameLoop handles the primary game animation frame timing. The game itself
+   * is moved in fixed steps by the Simulation; each frame only runs the steps
+   * the frame's time is worth and draws the Player and Zombies part way
+   * between their last two stepped positions.
    *
    */
   class GameLoop extends AnimationTimer
   {
+      // Used for timing events that don't happen every frame
+      int frame = 0;
+      
+      // The last-used user walking clip
+      int lastClip = 1;
+      
+      // Works out where and how every zombie is drawn
+      AnimationSystem animation = new AnimationSystem(Simulation.ZOMBIE_ACTIVATION_DISTANCE);
+      
       /**
-       * Moves the player, if possible (no wall collisions) in the direction(s) requested by the user
-       * with keyboard input, given the current angle determined by previous mouse input.
+       * Calculates the angle between two vectors, useful in directional sound calculation.
+       * 
+       * @param x1 X component of vector 1
+       * @param y1 Y component of vector 1
+       * @param x2 X component of vector 2
+       * @param y2 Y component of vector 2
+       * 
+       * @return double Angle, in degrees, between the provided vectors
        */
-      public void movePlayerIfRequested(double percentOfSecond)
+      public double angleBetweenVectors(double x1, double y1, double x2, double y2)
       {
-        double desiredZDisplacement = 0;
-        
-        // Calculate information for horizontal and vertical player movement based on direction
-        double cos = Math.cos(cameraYRotation / 180.0 * 3.1415);
-        double sin = Math.sin(cameraYRotation / 180.0 * 3.1415);
-        
-        // Include all user input (including those which cancel out) to determine z offset
-        desiredZDisplacement += (InputContainer.forward) ? (cos) : 0; 
-        desiredZDisplacement -= (InputContainer.backward) ? (cos) : 0;
-        desiredZDisplacement += (InputContainer.left) ? (sin) : 0;
-        desiredZDisplacement -= (InputContainer.right) ? (sin) : 0;
-        
-        // Include all user input (including those which cancel out) to determine x offset
-        double desiredXDisplacement = 0;
-        desiredXDisplacement += (InputContainer.forward) ? (sin) : 0;
-        desiredXDisplacement -= (InputContainer.backward) ? (sin) : 0;
-        desiredXDisplacement -= (InputContainer.left) ? (cos) : 0;
-        desiredXDisplacement += (InputContainer.right) ? (cos) : 0;
-        
-        // Prevent diagonal move speed-boost
-        double displacementMagnitude = Math.abs(desiredZDisplacement) + Math.abs(desiredXDisplacement);
-        double displacementScaleFactor = 1 / displacementMagnitude;
-        
-        boolean isRunning = false;
-        
-        if (Double.isInfinite(displacementScaleFactor)) displacementScaleFactor = 1;
-        if (InputContainer.run && Player.stamina > 0)
-        {
-    	  displacementScaleFactor *= 2;
-    	  Player.stamina -= 1.0 / TARGET_FRAMES_PER_SECOND;
-    	  isRunning = true;
-        }
-        
-        // Player out of stamina
-        else if (Player.stamina <= 0)
-        {
-    	  InputContainer.run = false;
-        }
+	return Math.toDegrees(Math.atan2(x1*y2 - x2*y1, x1*x2 + y1*y2));
+      }
+      
+      /**
+       * Plays the Player's walking noises, alternating the two step clips
+       */
+      private void playStepSounds()
+      {
+        boolean isRunning = simulation.isPlayerRunning();
         
-        // Player is not *trying* to run, so allow stamina regeneration
-        if (!InputContainer.run)
-        {
-    	  Player.stamina += Player.staminaRegen / TARGET_FRAMES_PER_SECOND;
-    	  if (Player.stamina > Player.maxStamina) Player.stamina = Player.maxStamina;
-        }
-
         // How often to play the stepping noise (walking vs running)
         int stepFrequency = isRunning ? 20 : 40;
-        
-        // Play walking noises if player is moving
-        if (desiredXDisplacement != 0 || desiredZDisplacement != 0)
-        {
-         if (frame % stepFrequency == 0)
-          {
-            // Alternate step clips
-    	    if (lastClip == 2)
-    	    {
-               AudioFiles.userStep1.setVolume(isRunning ? 0.4 : 0.25);
-               AudioFiles.userStep1.play();
-               lastClip = 1;
-            }
-            else if (lastClip == 1)
-            {
-              AudioFiles.userStep2.setVolume(isRunning ? 0.4 : 0.25);
-              AudioFiles.userStep2.play();
-              lastClip = 2;
-            }
-          }
-        }
-        desiredXDisplacement *= displacementScaleFactor;
-        desiredZDisplacement *= displacementScaleFactor;
-        
-        // If possible, the position the player indicated they wanted to move to
-        double desiredPlayerXPosition = Player.xPosition + (desiredXDisplacement * (percentOfSecond * Player.playerSpeed));
-        double desiredPlayerYPosition = Player.yPosition + (desiredZDisplacement * (percentOfSecond * Player.playerSpeed));
-        
-        // Player reached the exit
-        if (LevelVar.house[(int)desiredPlayerXPosition][(int)desiredPlayerYPosition] instanceof Exit)
-        {
-          System.out.println("next level...");
-          level.nextLevel();
-          stage.setTitle("Zombie House: Level " + (LevelVar.levelNum + 1));
-          rebuildLevel();
-        }
-        
-        // "Unstick" player
-        while (!(LevelVar.house[round(Player.xPosition)][round(Player.yPosition)] instanceof Tile))
+        if (simulation.isPlayerMoving() && frame % stepFrequency == 0)
         {
-          if (Player.xPosition < 5)
+          if (lastClip == 2)
           {
-             Player.xPosition += 1; 
+            AudioFiles.userStep1.setVolume(isRunning ? 0.4 : 0.25);
+            AudioFiles.userStep1.play();
+            lastClip = 1;
           }
-          else
+          else if (lastClip == 1)
           {
-              Player.xPosition -= 1;
+            AudioFiles.userStep2.setVolume(isRunning ? 0.4 : 0.25);
+            AudioFiles.userStep2.play();
+            lastClip = 2;
           }
         }
-        
-        // Check for wall collisions
-        if (!(LevelVar.house[round(desiredPlayerXPosition + WALL_COLLISION_OFFSET)][round(Player.yPosition)] instanceof Wall) &&
-            !(LevelVar.house[round(desiredPlayerXPosition - WALL_COLLISION_OFFSET)][round(Player.yPosition)] instanceof Wall)) 
-        {
-          Player.xPosition += desiredXDisplacement * (percentOfSecond * Player.playerSpeed);
-        }
-        if (!(LevelVar.house[round(Player.xPosition)][round(desiredPlayerYPosition + WALL_COLLISION_OFFSET)] instanceof Wall) &&
-            !(LevelVar.house[round(Player.xPosition)][round(desiredPlayerYPosition - WALL_COLLISION_OFFSET)] instanceof Wall))
-        {
-            Player.yPosition += desiredZDisplacement * (percentOfSecond * Player.playerSpeed);
-        }
-        
+      }
+      
+      /**
+       * Moves the camera and the "lantern" to where the Player is drawn, and
+       * swivels the camera toward the mouse
+       */
+      private void placeCamera(double alpha)
+      {
         // Calculate camera displacement
-        cameraXDisplacement = Player.xPosition * TILE_WIDTH_AND_HEIGHT;
-        cameraZDisplacement = Player.yPosition * TILE_WIDTH_AND_HEIGHT;
+        cameraXDisplacement = simulation.getRenderPlayerX(alpha) * TILE_WIDTH_AND_HEIGHT;
+        cameraZDisplacement = simulation.getRenderPlayerY(alpha) * TILE_WIDTH_AND_HEIGHT;
         
         // Move the point light with the light
         pl.setTranslateX(cameraXDisplacement);
@@ -493,7 +445,7 @@ public class MainApplication extends Application
         
         // Calculate camera rotation
         cameraYRotation += PLAYER_TURN_SMOOTHING * InputContainer.remainingCameraPan;
-    
+        
         // Displace camera
         camera.setTranslateX(cameraXDisplacement);
         camera.setTranslateZ(cameraZDisplacement);
@@ -503,147 +455,71 @@ public class MainApplication extends Application
         
         // Used for movement and swivel smoothing
         InputContainer.remainingCameraPan -= PLAYER_TURN_SMOOTHING * InputContainer.remainingCameraPan;
-        
       }
       
       /**
-       * Rounds the provided number up if decimal component >= 0.5, otherwise down.
-       * @param toRound Double to round
-       * @return int Rounded number
+       * Moves every 3D zombie to where its Zombie is drawn, and turns, animates
+       * and sounds the ones near the Player (the AnimationSystem works all of
+       * that out in one pass over the ZombieStore)
        */
-      private int round(double toRound)
+      private void placeZombies(double alpha)
       {
-	  if (toRound - ((int)toRound) < 0.5)
-	  {
-	      return (int)toRound;
-	  }
-	  else
-	  {
-	      return (int)toRound + 1;
-	  }
-      }
-
-      // Used for timing events that don't happen every frame
-      int frame = 0;
-      
-      // The last-used user walking clip
-      int lastClip = 1;
-      long lastFrame = System.nanoTime();
-      
-      /**
-       * Calculates the angle between two vectors, useful in directional sound calculation.
-       * 
-       * @param x1 X component of vector 1
-       * @param y1 Y component of vector 1
-       * @param x2 X component of vector 2
-       * @param y2 Y component of vector 2
-       * 
-       * @return double Angle, in degrees, between the provided vectors
-       */
-      public double angleBetweenVectors(double x1, double y1, double x2, double y2)
-      {
-	return Math.toDegrees(Math.atan2(x1*y2 - x2*y1, x1*x2 + y1*y2));
+        double playerDirectionVectorX = Math.toDegrees(Math.cos(cameraYRotation));
+        double playerDirectionVectorY = Math.toDegrees(Math.sin(cameraYRotation));
+        
+        // Animate zombies every four frames to reduce computational load
+        boolean advance = frame % 4 == 0;
+        ZombieStore store = LevelVar.zombieStore;
+        animation.aim(alpha, Player.xPosition, Player.yPosition, advance);
+        ZombieSystems.run(store, animation);
+        
+        for (int slot = 0; slot < store.size(); slot++)
+        {
+          Zombie3D zombie3D = store.getView(slot);
+          if (zombie3D == null) continue;
+          double x = store.getRenderX(slot);
+          double y = store.getRenderY(slot);
+          zombie3D.setTranslateX(x * TILE_WIDTH_AND_HEIGHT);
+          zombie3D.setTranslateZ(y * TILE_WIDTH_AND_HEIGHT);
+          if (!store.is(slot, ZombieStore.IN_VIEW)) continue;
+          
+          // Rotate to face the user
+          zombie3D.setRotate(store.getFacing(slot));
+          if (advance)
+          {
+            zombie3D.showFrame(store.getFrame(slot));
+            if (Math.random() > 0.98) 
+            {
+              double zombieVectorX = x - Player.xPosition;
+              double zombieVectorY = y - Player.yPosition;
+              double distance = Math.sqrt(zombieVectorX * zombieVectorX + zombieVectorY * zombieVectorY);
+              DirectionalPlayer.playSound(AudioFiles.randomZombieSound(), angleBetweenVectors(playerDirectionVectorX, playerDirectionVectorY, zombieVectorX, zombieVectorY), distance);
+            }
+          }
+        }
       }
       
       /**
-       * Called for every frame of the game. Moves the player, nearby zombies, and determiens win/loss conditions.
+       * Called for every frame of the game. Runs the Simulation steps due, then
+       * draws the result.
        */
       @Override
       public void handle(long time) 
       {
-	if (frame == 0) lastFrame = time;
-  	frame++;
-	double percentOfSecond = ((double)time - (double)lastFrame) / 2000000000;
-  	movePlayerIfRequested(percentOfSecond);
-  	
-  	double playerDirectionVectorX = Math.toDegrees(Math.cos(cameraYRotation));
-  	double playerDirectionVectorY = Math.toDegrees(Math.sin(cameraYRotation));
-	
-	// Animate zombies every four frames to reduce computational load
-	if (frame % 4 == 0) 
+	frame++;
+	simulation.setPlayerFacing(cameraYRotation);
+	simulation.advance(time);
+	if (simulation.takeLevelChanged())
 	{
-          for (Zombie zombie : LevelVar.zombieCollection)
-          {
-            Zombie3D zombie3D = zombie.zombie3D;
-            zombie3D.setTranslateX(zombie.positionX * TILE_WIDTH_AND_HEIGHT);
-            zombie3D.setTranslateZ(zombie.positionY * TILE_WIDTH_AND_HEIGHT);
-            
-            // Move and rotate the zombie. A* doesn't currently work, so this allows zombies to move towards player. Ugly.
-            double distance = Math.sqrt(Math.abs(zombie.positionX - Player.xPosition) * Math.abs(zombie.positionX - Player.xPosition) + 
-        	              Math.abs(zombie.positionY - Player.yPosition) * Math.abs(zombie.positionY - Player.yPosition));
-            if (distance < ZOMBIE_ACTIVATION_DISTANCE)
-            {
-              // Animate 3D zombie and move it to its parent zombie location
-              zombie3D.nextFrame();
-              double distanceX = (zombie.positionX - Player.xPosition);
-              double distanceY = (zombie.positionY - Player.yPosition);
-              double totalDistance = Math.abs(distanceX) + Math.abs(distanceY);
-              
-              // Player collided with zombie, restart level
-              if (totalDistance < 0.3) 
-              {
-        	System.out.println("Restarting due to death!!");
-        	level.restartLevel();
-                rebuildLevel();  
-              }
-              
-              double desiredPositionX = zombie.positionX - (distanceX / totalDistance * LevelVar.zombieSpeed * percentOfSecond);
-              double desiredPositionY = zombie.positionY - (distanceY / totalDistance * LevelVar.zombieSpeed * percentOfSecond);
-              
-
-              // Check for wall collisions
-              if (!(LevelVar.house[round(desiredPositionX + WALL_COLLISION_OFFSET)][round(zombie.positionY)] instanceof Wall) &&
-                  !(LevelVar.house[round(desiredPositionX - WALL_COLLISION_OFFSET)][round(zombie.positionY)] instanceof Wall)) 
-              {
-                  zombie.positionX = desiredPositionX;
-              }
-              if (!(LevelVar.house[round(zombie.positionX)][round(desiredPositionY + WALL_COLLISION_OFFSET)] instanceof Wall) &&
-                  !(LevelVar.house[round(zombie.positionX)][round(desiredPositionY - WALL_COLLISION_OFFSET)] instanceof Wall))
-              {
-                  zombie.positionY = desiredPositionY;
-              }
-              
-              double zombieVectorX = zombie.positionX - Player.xPosition;
-              double zombieVectorY = zombie.positionY - Player.yPosition;
-              
-              // Accomodate all four quadrants of the unit circle, rotate to face the user
-              if (distanceX < 0)
-              {
-        	if (distanceY < 0)
-        	{
-        	  double angle = 180 + Math.toDegrees(Math.atan((zombie.positionX - Player.xPosition) / (zombie.positionY - Player.yPosition)));
-                  zombie3D.setRotate(angle);
-        	}
-        	else
-        	{
-        	  double angle = 360 + Math.toDegrees(Math.atan((zombie.positionX - Player.xPosition) / (zombie.positionY - Player.yPosition)));
-                  zombie3D.setRotate(angle);        	  
-        	}
-              }
-              else if (distanceY < 0)
-              {
-        	  double angle = 180 + Math.toDegrees(Math.atan((zombie.positionX - Player.xPosition) / (zombie.positionY - Player.yPosition)));
-                  zombie3D.setRotate(angle);
-                
-              }
-              else
-              {
-        	double angle = Math.toDegrees(Math.atan((zombie.positionX - Player.xPosition) / (zombie.positionY - Player.yPosition)));
-                zombie3D.setRotate(angle);
-              }
-              
-
-    	      if (Math.random() > 0.98) 
-    	      {
-                DirectionalPlayer.playSound(AudioFiles.randomZombieSound(), angleBetweenVectors(playerDirectionVectorX, playerDirectionVectorY, zombieVectorX, zombieVectorY), distance);
-    	      }
-              
-            }
-          }
-          
-          lastFrame = time;
+	  stage.setTitle("Zombie House: Level " + (LevelVar.levelNum + 1));
+	  rebuildLevel();
 	}
 	
+	double alpha = simulation.getAlpha();
+	playStepSounds();
+	placeCamera(alpha);
+	placeZombies(alpha);
+	
 	// Rebuild level if requested. Done here to occur on graphics thread to avoid concurrent modification exceptions.
 	if (shouldRebuildLevel)
 	{
@@ -658,6 +534,9 @@ public class MainApplication extends Application
 	    }
 	    setupLevel();
 	    shouldRebuildLevel = false;
+	    
+	    // Don't make up for the time the rebuild took with a burst of steps
+	    simulation.resetClock();
 	}
     }
   }
@@ -5,13 +5,15 @@ import java.util.Random;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Group;
 import javafx.scene.transform.Rotate;
+import zombiehouse.level.zombie.AnimationSystem;
 
 /**
  * Zombie3D holds zombie animation frames that I animated in Blender.
  * Zombie model originally from http://www.blendswap.com/blends/view/4807.
  * Texturing and movement by me.
  * 
- * Each Zombie3D is tied to a traditional Zombie object.
+ * Each Zombie3D is tied to a traditional Zombie object, whose slot in the
+ * ZombieStore says which frame to show (see AnimationSystem).
  * 
  * @author Maxwell Sanchez
  *
@@ -19,10 +21,8 @@ import javafx.scene.transform.Rotate;
 public class Zombie3D extends Group
 {
 
-  private static final int MAXIMUM_FRAME = 8;
   private static final int LARGEST_FRAME = 30;
-  private int currentFrame = 0;
-  private int frameDirection = 1;
+  private int currentFrame;
   private static Random random = new Random();
 
   /**
@@ -57,7 +57,8 @@ public class Zombie3D extends Group
     setRotationAxis(Rotate.Y_AXIS);
     
     // Make sure zombies are on different frames to avoid "synchronized" movement
-    getChildren().get(random.nextInt(MAXIMUM_FRAME)).setVisible(true);
+    currentFrame = random.nextInt(AnimationSystem.FRAMES);
+    getChildren().get(currentFrame).setVisible(true);
   }
   
   public void setType(String zombieType)
@@ -69,21 +70,22 @@ public class Zombie3D extends Group
   }
   
   /**
-   * Change the current animation frame to the next frame.
+   * @return the animation frame being shown
    */
-  public void nextFrame()
+  public int getFrame()
   {
+    return currentFrame;
+  }
+  
+  /**
+   * Show animation frame (0 to AnimationSystem.FRAMES - 1) instead of the
+   * current one.
+   */
+  public void showFrame(int frame)
+  {
+    if (frame == currentFrame) return;
     getChildren().get(currentFrame).setVisible(false);
-    currentFrame += frameDirection;
-    if (currentFrame >= MAXIMUM_FRAME) 
-    {
-      currentFrame = MAXIMUM_FRAME - 1;
-      frameDirection = -1;
-    } else if (currentFrame < 0) 
-    {
-      currentFrame = 1;
-      frameDirection = 1;
-    }
+    currentFrame = frame;
     getChildren().get(currentFrame).setVisible(true);
   }
 }
@@ -0,0 +1,295 @@
+package zombiehouse.level;
+
+import zombiehouse.common.InputContainer;
+import zombiehouse.common.LevelVar;
+import zombiehouse.common.Player;
+import zombiehouse.common.WorldSnapshot;
+import zombiehouse.level.house.Exit;
+import zombiehouse.level.house.Level;
+import zombiehouse.level.house.WallField;
+import zombiehouse.level.zombie.AIScheduler;
+import zombiehouse.level.zombie.ChaseSystem;
+import zombiehouse.level.zombie.Zombie;
+import zombiehouse.level.zombie.ZombieSystems;
+import zombiehouse.util.FixedTimestep;
+
+/**
+ * Simulation owns everything that moves in the game - the Player, the
+ * Zombies and going to the next level or restarting - and advances it in
+ * fixed steps of 1 / STEPS_PER_SECOND of a second, however often frames are
+ * drawn.
+ *
+ * The renderer calls advance() once per frame with the frame's time, which
+ * runs however many steps that time is worth (see FixedTimestep), and then
+ * draws everything part way between its position before and after the last
+ * step using getAlpha() and the getRender...() methods. So the game runs at
+ * the same speed and checks every collision no matter the frame rate, and
+ * the cost of a frame's simulation only depends on how much time passed.
+ *
+ * Sound and animation are left to the renderer, which can ask whether the
+ * Player is walking or running.
+ *
+ * The Zombie AI runs on other threads and never touches the live positions:
+ * after a frame's steps the Simulation publishes a WorldSnapshot for it to
+ * decide on, and it applies the ZombieIntents the AI hands back. As before
+ * the AI ran on its own, only Zombies within ZOMBIE_ACTIVATION_DISTANCE
+ * (straight line) chase the Player, hunting or not; the ChaseSystem moves
+ * them in one pass over the ZombieStore.
+ *
+ * private:
+ * level - the Level that is restarted / advanced
+ * aiScheduler - stopped before the house is regenerated (may be null)
+ * clock - splits frame time into steps
+ * lastPlayerX, lastPlayerY - where the Player was before the last step
+ * playerFacing - the direction the Player faces in degrees (the camera's)
+ * playerMoving, playerRunning - what the Player did in the last step
+ * levelChanged - set when the house was replaced, until the renderer takes it
+ * stepCount - steps run since the game started
+ *
+ * private final:
+ * chase - the ChaseSystem moving the Zombies each step
+ */
+public class Simulation
+{
+  public static final double STEPS_PER_SECOND = 60;
+  /**
+   * the most steps run for one frame; time beyond that is dropped
+   */
+  public static final int MAX_STEPS_PER_FRAME = 5;
+  /**
+   * Zombies further away (straight line, in Tiles) than this stand still
+   */
+  public static final int ZOMBIE_ACTIVATION_DISTANCE = 14;
+  /**
+   * how much game time passes per second for the Player and the Zombies;
+   * these keep the speeds the old frame delta loop actually moved them at
+   */
+  private static final double PLAYER_TIME_SCALE = 1.25;
+  private static final double ZOMBIE_TIME_SCALE = 0.5;
+  private static final double WALL_COLLISION_OFFSET = 0.25;
+  /**
+   * how close (Manhattan distance in Tiles) a Zombie must get to kill the Player
+   */
+  private static final double ZOMBIE_REACH = 0.3;
+
+  private final Level level;
+  private final AIScheduler aiScheduler;
+  private final FixedTimestep clock = new FixedTimestep(STEPS_PER_SECOND, MAX_STEPS_PER_FRAME);
+  private double lastPlayerX = Player.xPosition;
+  private double lastPlayerY = Player.yPosition;
+  private double playerFacing = 0;
+  private boolean playerMoving = false;
+  private boolean playerRunning = false;
+  private boolean levelChanged = false;
+  private long stepCount = 0;
+  private final ChaseSystem chase = new ChaseSystem(ZOMBIE_ACTIVATION_DISTANCE, ZOMBIE_REACH, WALL_COLLISION_OFFSET);
+
+  /**
+   * @param level the Level the game is being played on
+   * @param aiScheduler the scheduler deciding for the level's Zombies, to be
+   *                    stopped before the level is replaced (restarting it
+   *                    for the new level is up to the caller), or null
+   */
+  public Simulation(Level level, AIScheduler aiScheduler)
+  {
+    this.level = level;
+    this.aiScheduler = aiScheduler;
+    WorldSnapshot.publish(stepCount);
+  }
+
+  /**
+   * Runs the steps the time since the last frame is worth. If the house is
+   * replaced part way (the Player died or reached the exit) the rest of the
+   * frame's steps are skipped.
+   * @param now the frame's time in nanoseconds
+   * @return the number of steps run
+   */
+  public int advance(long now)
+  {
+    int steps = clock.advance(now);
+    for(int i = 0; i < steps; i++)
+    {
+      step(clock.getStepSeconds());
+      if(levelChanged) { return i + 1; }
+    }
+    if(steps > 0) { WorldSnapshot.publish(stepCount); }
+    return steps;
+  }
+
+  /**
+   * One step of the game
+   * @param seconds the length of the step
+   */
+  public void step(double seconds)
+  {
+    stepCount++;
+    lastPlayerX = Player.xPosition;
+    lastPlayerY = Player.yPosition;
+    LevelVar.zombieStore.saveLastPositions();
+    movePlayer(seconds);
+    if(levelChanged) { return; }
+    moveZombies(seconds);
+  }
+
+  /**
+   * Moves the Player, if possible (no wall collisions), in the direction(s)
+   * asked for on the keyboard relative to playerFacing
+   */
+  private void movePlayer(double seconds)
+  {
+    double cos = Math.cos(playerFacing / 180.0 * 3.1415);
+    double sin = Math.sin(playerFacing / 180.0 * 3.1415);
+
+    // Include all user input (including those which cancel out)
+    double desiredZDisplacement = 0;
+    desiredZDisplacement += (InputContainer.forward) ? (cos) : 0;
+    desiredZDisplacement -= (InputContainer.backward) ? (cos) : 0;
+    desiredZDisplacement += (InputContainer.left) ? (sin) : 0;
+    desiredZDisplacement -= (InputContainer.right) ? (sin) : 0;
+    double desiredXDisplacement = 0;
+    desiredXDisplacement += (InputContainer.forward) ? (sin) : 0;
+    desiredXDisplacement -= (InputContainer.backward) ? (sin) : 0;
+    desiredXDisplacement -= (InputContainer.left) ? (cos) : 0;
+    desiredXDisplacement += (InputContainer.right) ? (cos) : 0;
+
+    // Prevent diagonal move speed-boost
+    double displacementScaleFactor = 1 / (Math.abs(desiredZDisplacement) + Math.abs(desiredXDisplacement));
+    if(Double.isInfinite(displacementScaleFactor)) { displacementScaleFactor = 1; }
+
+    playerRunning = false;
+    if(InputContainer.run && Player.stamina > 0)
+    {
+      displacementScaleFactor *= 2;
+      Player.stamina -= seconds;
+      playerRunning = true;
+    }
+    else if(Player.stamina <= 0)
+    {
+      InputContainer.run = false;
+    }
+    // Player is not *trying* to run, so allow stamina regeneration
+    if(!InputContainer.run)
+    {
+      Player.stamina += Player.staminaRegen * seconds;
+      if(Player.stamina > Player.maxStamina) { Player.stamina = Player.maxStamina; }
+    }
+    playerMoving = desiredXDisplacement != 0 || desiredZDisplacement != 0;
+
+    double distance = seconds * PLAYER_TIME_SCALE * Player.playerSpeed;
+    double moveX = desiredXDisplacement * displacementScaleFactor * distance;
+    double moveY = desiredZDisplacement * displacementScaleFactor * distance;
+    double desiredX = Player.xPosition + moveX;
+    double desiredY = Player.yPosition + moveY;
+
+    // Player reached the exit
+    if(LevelVar.house[(int)desiredX][(int)desiredY] instanceof Exit)
+    {
+      nextLevel();
+      return;
+    }
+
+    // Check for wall collisions
+    WallField walls = WallField.forHouse(LevelVar.house);
+    if(walls.canMove(Player.xPosition, Player.yPosition, desiredX, Player.yPosition, WALL_COLLISION_OFFSET))
+    {
+      Player.xPosition += moveX;
+    }
+    if(walls.canMove(Player.xPosition, Player.yPosition, Player.xPosition, desiredY, WALL_COLLISION_OFFSET))
+    {
+      Player.yPosition += moveY;
+    }
+  }
+
+  /**
+   * Applies what every Zombie decided, moves every Zombie near the Player
+   * toward the Player (no wall collisions) and restarts the level if one
+   * reached the Player
+   */
+  private void moveZombies(double seconds)
+  {
+    double distance = seconds * ZOMBIE_TIME_SCALE * LevelVar.zombieSpeed;
+    for(Zombie zombie : LevelVar.zombieCollection) { zombie.applyIntent(); }
+    chase.aim(WallField.forHouse(LevelVar.house), Player.xPosition, Player.yPosition, distance);
+    ZombieSystems.run(LevelVar.zombieStore, chase);
+    if(LevelVar.zombieGrid != null) { LevelVar.zombieGrid.update(); }
+
+    // Player collided with zombie, restart level
+    if(chase.hasReached())
+    {
+      System.out.println("Restarting due to death!!");
+      if(aiScheduler != null) { aiScheduler.stopLevel(); }
+      level.restartLevel();
+      levelChanged();
+    }
+  }
+
+  /**
+   * Goes on to the next level (the exit was reached, or the cheat key)
+   */
+  public void nextLevel()
+  {
+    System.out.println("next level...");
+    if(aiScheduler != null) { aiScheduler.stopLevel(); }
+    level.nextLevel();
+    levelChanged();
+  }
+
+  /**
+   * The house was replaced: nothing should be drawn part way between the old
+   * positions and the new ones
+   */
+  private void levelChanged()
+  {
+    levelChanged = true;
+    lastPlayerX = Player.xPosition;
+    lastPlayerY = Player.yPosition;
+    LevelVar.zombieStore.saveLastPositions();
+    WorldSnapshot.publish(stepCount);
+  }
+
+  /**
+   * @return true (once) if the house was replaced since the last call,
+   *         so the renderer has to rebuild the scene
+   */
+  public boolean takeLevelChanged()
+  {
+    boolean changed = levelChanged;
+    levelChanged = false;
+    return changed;
+  }
+
+  /**
+   * Forgets the time not yet simulated; call after a slow scene rebuild so
+   * it isn't made up for with a burst of steps
+   */
+  public void resetClock() { clock.reset(); }
+
+  /**
+   * Sets the direction the Player walks relative to (the camera's direction)
+   */
+  public void setPlayerFacing(double degrees) { playerFacing = degrees; }
+
+  /**
+   * @return how far (0 to 1) the current frame is between the last step and the next
+   */
+  public double getAlpha() { return clock.getAlpha(); }
+
+  public double getRenderPlayerX(double alpha) { return lastPlayerX + (Player.xPosition - lastPlayerX) * alpha; }
+
+  public double getRenderPlayerY(double alpha) { return lastPlayerY + (Player.yPosition - lastPlayerY) * alpha; }
+
+  public double getRenderX(Zombie zombie, double alpha) { return zombie.getLastPositionX() + (zombie.getPositionX() - zombie.getLastPositionX()) * alpha; }
+
+  public double getRenderY(Zombie zombie, double alpha) { return zombie.getLastPositionY() + (zombie.getPositionY() - zombie.getLastPositionY()) * alpha; }
+
+  public boolean isPlayerMoving() { return playerMoving; }
+
+  public boolean isPlayerRunning() { return playerRunning; }
+
+  public long getStepCount() { return stepCount; }
+
+  /**
+   * @return the time dropped because frames were too slow to keep up
+   */
+  public long getDroppedNanos() { return clock.getDroppedNanos(); }
+}
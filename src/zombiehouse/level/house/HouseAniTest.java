@@ -12,6 +12,7 @@ import javafx.stage.Stage;
 import zombiehouse.common.InputContainer;
 import zombiehouse.common.LevelVar;
 import zombiehouse.common.Player;
+import zombiehouse.common.WorldSnapshot;
 import zombiehouse.level.zombie.*;
 
 public class HouseAniTest extends Application
@@ -29,6 +30,7 @@ public class HouseAniTest extends Application
   private GraphicsContext gfx;
   
   private Level l;
+  private final AIScheduler aiScheduler = new AIScheduler();
   
   @Override
   public void start(Stage primaryStage) throws Exception
@@ -98,10 +100,16 @@ public class HouseAniTest extends Application
       }
       else if (keycode == KeyCode.O)
       {
+        aiScheduler.stopLevel();
         l.fullGen();
+        aiScheduler.startLevel(LevelVar.zombieCollection, Zombie.getDecisionRate());
 //        LevelVar.HOUSE_PRESENTATION = ! LevelVar.HOUSE_PRESENTATION;
 //        levelUp();
       }
+      else if (keycode == KeyCode.P)
+      {
+        nextPathMode();
+      }
     });
 
     scene.setOnKeyReleased(event -> 
@@ -125,16 +133,31 @@ public class HouseAniTest extends Application
       }
     });
     
-    ZTimer zMoves = new ZTimer();
-    zMoves.zUpdateTimer.schedule(zMoves.myUpdate, Zombie.getDecisionRate(), Zombie.getDecisionRate());
+    aiScheduler.startLevel(LevelVar.zombieCollection, Zombie.getDecisionRate());
     
     AnimationTimer gameLoop = new MainGameLoop();
     gameLoop.start();
   }
   
+  /**
+   * Switches the Zombies to the next PathMode and restarts the level on the
+   * same seed, so the path finders can be compared on the same house
+   */
+  private void nextPathMode()
+  {
+    PathMode[] modes = PathMode.values();
+    LevelVar.pathMode = modes[(LevelVar.pathMode.ordinal() + 1) % modes.length];
+    aiScheduler.stopLevel();
+    l.restartLevel();
+    aiScheduler.startLevel(LevelVar.zombieCollection, Zombie.getDecisionRate());
+    System.out.println("Path mode: " + LevelVar.pathMode);
+  }
+  
   private void levelUp()
   {
+    aiScheduler.stopLevel();
     l.nextLevel();
+    aiScheduler.startLevel(LevelVar.zombieCollection, Zombie.getDecisionRate());
     stage.setTitle("SPOOKY DEAD MAN HOUSE - Level: " + (LevelVar.levelNum + 1));
     System.out.println("\nNext Level! #" + (LevelVar.levelNum + 1));
     sqrPix = canvasWidth / Level.houseWidth;
@@ -142,6 +165,7 @@ public class HouseAniTest extends Application
   
   public class MainGameLoop extends AnimationTimer
   {
+    private long frame = 0;
 
     @Override
     public void handle(long now)
@@ -161,18 +185,22 @@ public class HouseAniTest extends Application
       gfx.setFill(Color.BLUE);
       gfx.fillOval(Player.xPosition * sqrPix - sqrPix / 2, Player.yPosition * sqrPix - sqrPix / 2, sqrPix * 1, sqrPix * 1);
       
+      Zombie.moveAll(LevelVar.zombieCollection);
       for(Zombie z : LevelVar.zombieCollection)
       {
-//        z.makeDecision();
-        z.move();
-        if(z instanceof LineWalkZombie) { gfx.setFill(Color.DARKOLIVEGREEN); }
-        else if(z instanceof RandomWalkZombie) { gfx.setFill(Color.LIGHTGREEN); }
-        else { gfx.setFill(Color.VIOLET); }
-        gfx.fillOval(z.positionX * sqrPix - sqrPix / 2, z.positionY * sqrPix - sqrPix / 2, sqrPix * 1, sqrPix * 1);
+        switch(z.getKind())
+        {
+          case LINE_WALK:   gfx.setFill(Color.DARKOLIVEGREEN); break;
+          case RANDOM_WALK: gfx.setFill(Color.LIGHTGREEN); break;
+          default:          gfx.setFill(Color.VIOLET); break;
+        }
+        gfx.fillOval(z.getPositionX() * sqrPix - sqrPix / 2, z.getPositionY() * sqrPix - sqrPix / 2, sqrPix * 1, sqrPix * 1);
       }
       
       movePlayerIfRequested();
       if(LevelVar.WITH_SIGHT) { l.checkSight(); }
+      // Let the zombies' AI see where everything moved to
+      WorldSnapshot.publish(++frame);
     }
   }
   
@@ -203,15 +231,12 @@ public class HouseAniTest extends Application
     {
       Player.yPosition += desiredYDisplacement * PLAYER_MOVE_SPEED;
     }
-    for(Zombie z: LevelVar.zombieCollection)
+    if(LevelVar.zombieStore.minDistanceSquaredTo(Player.xPosition, Player.yPosition) < 1)
     {
-      double deltaX = Player.xPosition - z.positionX;
-      double deltaY = Player.yPosition - z.positionY;
-      if( deltaX * deltaX + deltaY * deltaY < 1  )
-      {
-        System.out.println("player dead");
-        l.restartLevel();
-      }
+      System.out.println("player dead");
+      aiScheduler.stopLevel();
+      l.restartLevel();
+      aiScheduler.startLevel(LevelVar.zombieCollection, Zombie.getDecisionRate());
     }
     if (LevelVar.house[(int)desiredPlayerXPosition][(int)desiredPlayerYPosition] instanceof Exit)
     {
@@ -0,0 +1,156 @@
+package zombiehouse.level.house;
+
+import java.util.Arrays;
+
+/**
+ * Landmarks holds the ALT (A*, Landmarks, Triangle inequality) tables of a
+ * house: the walking distance from a few landmark Tiles to every Tile.
+ *
+ * For any landmark L, |d(L, goal) - d(L, n)| can never be more than the real
+ * walking distance from n to goal, so the largest of these over all the
+ * landmarks is a lower bound A* can use as its heuristic. Unlike the
+ * Manhattan distance it knows about the walls: a Tile on the wrong side of a
+ * long wall gets a high estimate even if it is close as the crow flies.
+ *
+ * Landmarks are picked far apart (each new one is the floor Tile furthest from
+ * the ones already picked), which puts them out at the ends and corners of
+ * the house where they bound the most routes. Nothing random is used, so
+ * building the tables doesn't change the level seed's sequence.
+ *
+ * Used by AStar while LevelVar.ALT_HEURISTIC is on, so by the A* path modes
+ * (PathMode ASTAR, ASTAR_ASYNC and HIERARCHICAL). Built once per level by
+ * Level alongside the NavGraph; costs
+ * count * NavGraph.size() ints of memory (see getMemoryBytes).
+ *
+ * private final:
+ * graph - the NavGraph the distances were measured over
+ * landmarkIds - the Tile ID of each landmark
+ * distance - landmark major: distance[k * size + id] is the number of steps
+ *            from landmark k to id (UNREACHABLE if it can't be walked to)
+ */
+public class Landmarks
+{
+  public static final int DEFAULT_COUNT = 8;
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final NavGraph graph;
+  private final int size;
+  private final int[] landmarkIds;
+  private final int[] distance;
+
+  /**
+   * Picks up to count landmarks in graph and measures the distance from each
+   * of them to every Tile
+   * @param graph the NavGraph of the finished house
+   * @param count the number of landmarks wanted (fewer if the house has fewer floor Tiles)
+   */
+  public Landmarks(NavGraph graph, int count)
+  {
+    this.graph = graph;
+    this.size = graph.size();
+    int floors = 0;
+    int firstFloor = NavGraph.NO_TILE;
+    for(int id = 0; id < size; id++)
+    {
+      if(!graph.isWalkable(id)) { continue; }
+      if(firstFloor == NavGraph.NO_TILE) { firstFloor = id; }
+      floors++;
+    }
+    count = Math.min(count, floors);
+    landmarkIds = new int[count];
+    distance = new int[count * size];
+    if(count == 0) { return; }
+
+    // nearest[id] is the distance from id to the closest landmark so far
+    int[] nearest = new int[size];
+    int[] queue = new int[size];
+    bfs(firstFloor, nearest, 0, queue);
+    int next = furthest(nearest);
+    Arrays.fill(nearest, UNREACHABLE);
+    for(int k = 0; k < count; k++)
+    {
+      landmarkIds[k] = next;
+      bfs(next, distance, k * size, queue);
+      for(int id = 0; id < size; id++)
+      {
+        nearest[id] = Math.min(nearest[id], distance[k * size + id]);
+      }
+      next = furthest(nearest);
+    }
+  }
+
+  /**
+   * Breadth first distances from rootId written to out[base .. base + size)
+   */
+  private void bfs(int rootId, int[] out, int base, int[] queue)
+  {
+    Arrays.fill(out, base, base + size, UNREACHABLE);
+    out[base + rootId] = 0;
+    int head = 0, tail = 0;
+    queue[tail++] = rootId;
+    while(head < tail)
+    {
+      int id = queue[head++];
+      int nextDistance = out[base + id] + 1;
+      for(int e = graph.neighborStart(id); e < graph.neighborEnd(id); e++)
+      {
+        int next = graph.neighbor(e);
+        if(out[base + next] != UNREACHABLE) { continue; }
+        out[base + next] = nextDistance;
+        queue[tail++] = next;
+      }
+    }
+  }
+
+  /**
+   * @return the reachable ID with the largest distance in dist
+   *         (ties go to the lowest ID)
+   */
+  private int furthest(int[] dist)
+  {
+    int best = NavGraph.NO_TILE;
+    for(int id = 0; id < size; id++)
+    {
+      if(dist[id] == UNREACHABLE || !graph.isWalkable(id)) { continue; }
+      if(best == NavGraph.NO_TILE || dist[id] > dist[best]) { best = id; }
+    }
+    return best;
+  }
+
+  /**
+   * @return a lower bound of the number of steps from id to goalId
+   *         (0 if no landmark reaches both)
+   */
+  public int lowerBound(int id, int goalId)
+  {
+    int bound = 0;
+    for(int base = 0; base < distance.length; base += size)
+    {
+      int fromLandmark = distance[base + id];
+      int toGoal = distance[base + goalId];
+      if(fromLandmark == UNREACHABLE || toGoal == UNREACHABLE) { continue; }
+      int difference = Math.abs(toGoal - fromLandmark);
+      if(difference > bound) { bound = difference; }
+    }
+    return bound;
+  }
+
+  public NavGraph getNavGraph() { return graph; }
+
+  public int getCount() { return landmarkIds.length; }
+
+  /**
+   * @return the Tile ID of landmark k
+   */
+  public int getLandmark(int k) { return landmarkIds[k]; }
+
+  /**
+   * @return the number of steps from landmark k to id, or UNREACHABLE
+   */
+  public int getDistance(int k, int id) { return distance[k * size + id]; }
+
+  /**
+   * @return the memory taken by the distance tables
+   */
+  public long getMemoryBytes() { return 4L * distance.length; }
+}
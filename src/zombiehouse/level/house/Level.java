@@ -76,10 +76,12 @@ public class Level
     houseHeight = mazeTilesXPerZone * 2 * 4 + 1;
     LevelVar.house = new Tile[houseWidth][houseHeight];
     LevelVar.zombieCollection = new ArrayList<Zombie>();
+    LevelVar.zombieStore = new ZombieStore();
     playerLevelUp();
     rSeed = LevelVar.rand.nextLong();
     LevelVar.rand = new Random(rSeed);
     pG = new ProGen();
+    buildNavigation();
     if(LevelVar.LEVEL_DEBUG_TEXT) { printHouse(); }
   }
   
@@ -93,11 +95,29 @@ public class Level
     nextZombie = 0;
     LevelVar.house = new Tile[houseWidth][houseHeight];
     LevelVar.zombieCollection = new ArrayList<Zombie>();
+    LevelVar.zombieStore = new ZombieStore();
     LevelVar.rand.setSeed(rSeed);
     pG = new ProGen();
+    buildNavigation();
     if(LevelVar.LEVEL_DEBUG_TEXT) { printHouse(); }
   }
   
+  /**
+   * packs the generated house for path finding:
+   * the Tile level NavGraph, the Room level RoomGraph on top of it
+   * and the ALT Landmarks distance tables,
+   * bakes the WallField for collisions
+   * and buckets the Zombies in the ZombieGrid
+   */
+  private void buildNavigation()
+  {
+    LevelVar.navGraph = new NavGraph(LevelVar.house);
+    LevelVar.roomGraph = pG.buildRoomGraph(LevelVar.navGraph);
+    LevelVar.landmarks = new Landmarks(LevelVar.navGraph, Landmarks.DEFAULT_COUNT);
+    LevelVar.wallField = new WallField(LevelVar.house);
+    LevelVar.zombieGrid = ZombieGrid.build(houseWidth, houseHeight, LevelVar.zombieStore);
+  }
+  
   /**
    * raises the difficulty for each following level
    * (pillars can only spawn in preset areas, and are an obsical to movement and sight)
@@ -161,10 +181,12 @@ public class Level
   public void nextGenStep()
   {
     pG.nextStep();
+    buildNavigation();
   }
   
   public void fullGen()
   {
     pG.shortCutGen();
+    buildNavigation();
   }
 }
@@ -0,0 +1,191 @@
+package zombiehouse.level.house;
+
+import zombiehouse.common.LevelVar;
+
+/**
+ * NavGraph is the walkable layout of a house packed for path finding
+ *
+ * It is built once per level from LevelVar.house (by Level) and never changes
+ * afterward, so searches never have to touch (or fill in) Tile.neighbors.
+ *
+ * Every Tile gets an int ID of x * height + y and the floor Tiles reachable in
+ * one step from it are stored compressed-sparse-row style:
+ * the neighbors of ID n are adjacent[offsets[n]] .. adjacent[offsets[n + 1] - 1]
+ * (walls and exits have no neighbors and are never anyone's neighbor)
+ *
+ * Neighbors are listed in the same order Tile.setNeighbors() used: +x, +y, -y, -x
+ *
+ * private final:
+ * house - the Tile[][] this graph was built from
+ * width, height - the dimensions of house
+ * offsets - start of each ID's run in adjacent (size() + 1 entries)
+ * adjacent - the neighbor IDs of every ID, back to back
+ * walkable - which IDs are floor Tiles
+ */
+public class NavGraph
+{
+  public static final int NO_TILE = -1;
+
+  private final Tile[][] house;
+  private final int width, height;
+  private final int[] offsets;
+  private final int[] adjacent;
+  private final boolean[] walkable;
+
+  /**
+   * Packs the walkable layout of house
+   * @param house a fully generated house
+   */
+  public NavGraph(Tile[][] house)
+  {
+    this.house = house;
+    width = house.length;
+    height = house[0].length;
+    offsets = new int[width * height + 1];
+    walkable = new boolean[width * height];
+
+    // first pass counts the edges, second pass fills them in
+    int edges = 0;
+    for(int x = 0; x < width; x++)
+    {
+      for(int y = 0; y < height; y++)
+      {
+        if(!house[x][y].isFloor()) { continue; }
+        if(x + 1 < width  && house[x + 1][y].isFloor()) { edges++; }
+        if(y + 1 < height && house[x][y + 1].isFloor()) { edges++; }
+        if(y - 1 >= 0     && house[x][y - 1].isFloor()) { edges++; }
+        if(x - 1 >= 0     && house[x - 1][y].isFloor()) { edges++; }
+      }
+    }
+    adjacent = new int[edges];
+    int next = 0;
+    for(int x = 0; x < width; x++)
+    {
+      for(int y = 0; y < height; y++)
+      {
+        offsets[x * height + y] = next;
+        if(!house[x][y].isFloor()) { continue; }
+        walkable[x * height + y] = true;
+        if(x + 1 < width  && house[x + 1][y].isFloor()) { adjacent[next++] = (x + 1) * height + y; }
+        if(y + 1 < height && house[x][y + 1].isFloor()) { adjacent[next++] = x * height + y + 1; }
+        if(y - 1 >= 0     && house[x][y - 1].isFloor()) { adjacent[next++] = x * height + y - 1; }
+        if(x - 1 >= 0     && house[x - 1][y].isFloor()) { adjacent[next++] = (x - 1) * height + y; }
+      }
+    }
+    offsets[width * height] = next;
+  }
+
+  /**
+   * Returns the NavGraph for house, reusing LevelVar.navGraph when it was
+   * built from the same house and building (and saving) a new one otherwise
+   * @param house the house to get the graph of
+   * @return the NavGraph of house
+   */
+  public static NavGraph forHouse(Tile[][] house)
+  {
+    NavGraph graph = LevelVar.navGraph;
+    if(graph == null || graph.house != house)
+    {
+      graph = new NavGraph(house);
+      LevelVar.navGraph = graph;
+    }
+    return graph;
+  }
+
+  /**
+   * @return the number of IDs (every Tile of the house, walkable or not)
+   */
+  public int size() { return width * height; }
+
+  public int getWidth() { return width; }
+
+  public int getHeight() { return height; }
+
+  public Tile[][] getHouse() { return house; }
+
+  /**
+   * @return the ID of the Tile at [x][y], or NO_TILE if that is off the house
+   */
+  public int getId(int x, int y)
+  {
+    if(x < 0 || y < 0 || x >= width || y >= height) { return NO_TILE; }
+    return x * height + y;
+  }
+
+  public int getId(Tile tile) { return getId(tile.xCor, tile.yCor); }
+
+  public int getX(int id) { return id / height; }
+
+  public int getY(int id) { return id % height; }
+
+  public Tile getTile(int id) { return house[id / height][id % height]; }
+
+  /**
+   * @return true if id is a floor Tile
+   */
+  public boolean isWalkable(int id) { return walkable[id]; }
+
+  /**
+   * @return the index in the edge list of id's first neighbor
+   */
+  public int neighborStart(int id) { return offsets[id]; }
+
+  /**
+   * @return one past the index in the edge list of id's last neighbor
+   */
+  public int neighborEnd(int id) { return offsets[id + 1]; }
+
+  /**
+   * @param edge an index between neighborStart(id) and neighborEnd(id)
+   * @return the ID of that neighbor
+   */
+  public int neighbor(int edge) { return adjacent[edge]; }
+
+  /**
+   * @return the number of walkable neighbors id has
+   */
+  public int degree(int id) { return offsets[id + 1] - offsets[id]; }
+
+  /**
+   * Casts a ray from the middle of one Tile to the middle of another and
+   * checks every Tile it passes through is floor. Where the ray goes exactly
+   * through a corner both Tiles beside the corner must be floor too, so a
+   * clear line never cuts between two diagonal walls.
+   * @return true if the straight line between fromId and toId is clear
+   */
+  public boolean isClearLine(int fromId, int toId)
+  {
+    int x = getX(fromId), y = getY(fromId);
+    int endX = getX(toId), endY = getY(toId);
+    int dX = Math.abs(endX - x), dY = Math.abs(endY - y);
+    int stepX = (endX > x) ? 1 : -1;
+    int stepY = (endY > y) ? 1 : -1;
+    // error > 0: the ray leaves the Tile through its x side next, < 0: y side
+    int error = dX - dY;
+    dX *= 2;
+    dY *= 2;
+    if(!walkable[fromId]) { return false; }
+    while(x != endX || y != endY)
+    {
+      if(error > 0)
+      {
+        x += stepX;
+        error -= dY;
+      }
+      else if(error < 0)
+      {
+        y += stepY;
+        error += dX;
+      }
+      else
+      {
+        if(!walkable[(x + stepX) * height + y] || !walkable[x * height + y + stepY]) { return false; }
+        x += stepX;
+        y += stepY;
+        error += dX - dY;
+      }
+      if(!walkable[x * height + y]) { return false; }
+    }
+    return true;
+  }
+}
@@ -315,6 +315,35 @@ public class ProGen
     return fullSizeHouse;
   }
   
+  /**
+   * Exports the Room / Zone layout of the generated house (which is otherwise
+   * lost once it is turned into Tiles) for room level path finding
+   * @param graph the NavGraph of the finished house
+   * @return the RoomGraph of this house
+   */
+  public RoomGraph buildRoomGraph(NavGraph graph)
+  {
+    int[] roomOf = new int[graph.size()];
+    for(int x = 0; x < graph.getWidth(); x++)
+    {
+      for(int y = 0; y < graph.getHeight(); y++)
+      {
+        int room = RoomGraph.NO_ROOM;
+        if(!illegalIndex(x / SCALER, y / SCALER)) { room = scaledHouse[x / SCALER][y / SCALER].room; }
+        if(room >= allRoomList.size()) { room = RoomGraph.NO_ROOM; }
+        roomOf[graph.getId(x, y)] = room;
+      }
+    }
+    int[] roomZone = new int[allRoomList.size()];
+    boolean[] normalRoom = new boolean[allRoomList.size()];
+    for(Room r : allRoomList)
+    {
+      roomZone[r.roomNumber] = r.zoneNum;
+      normalRoom[r.roomNumber] = r.isNormalRoom;
+    }
+    return new RoomGraph(graph, roomOf, roomZone, normalRoom);
+  }
+  
   private void startRoomCarve(int zone)
   {
       
@@ -681,8 +710,8 @@ public class ProGen
       int randY = LevelVar.rand.nextInt(fullY);
       if(LevelVar.house[randX][randY].isEmpty() && LevelVar.house[randX][randY].zone == zoneNum)
       {
-        Player.xPosition = randX;
-        Player.yPosition = randY;
+        Player.xPosition = randX + 0.5;
+        Player.yPosition = randY + 0.5;
         playerNotPlaced = false;
       }
     }
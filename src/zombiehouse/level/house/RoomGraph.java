@@ -0,0 +1,281 @@
+package zombiehouse.level.house;
+
+import java.util.Arrays;
+import zombiehouse.util.IndexedMinHeap;
+
+/**
+ * RoomGraph is the Room / Zone layout ProGen generated, kept after the house
+ * is flattened into Tiles so path finding can plan at the room level first.
+ *
+ * Each floor Tile (by NavGraph ID) knows which Room it is in. Two Rooms are
+ * neighbors when a step in the NavGraph crosses from one to the other, and
+ * the floor Tiles on either side of such a step are the portals between them.
+ * Rooms are tied together by the real Tile layout rather than ProGen's
+ * openedNeighboringRooms, so the doors opened between zones are included.
+ *
+ * A route between Rooms is found with Dijkstra over the (small) Room graph,
+ * weighting each hop by the Manhattan distance between the Room centers.
+ * There are only tens to low hundreds of Rooms, so when the graph is built
+ * (once per level, at generation time) every pair is worked out up front:
+ *  - nextHop: the Room to head into next on the route between two Rooms
+ *  - hops: the fewest Room to Room steps between two Rooms
+ *  - gap: the fewest Tile steps from any Tile of one Room to any Tile of the
+ *    other, which is a lower bound of the walk between any two Tiles in
+ *    them, so "is the player clearly out of range" is an O(1) lookup
+ *
+ * private final:
+ * graph - the NavGraph of the house this was built for
+ * roomOf - Room number of each Tile ID (NO_ROOM for walls and the outer wall)
+ * roomZone - the Zone each Room is in
+ * normalRoom - true for full size Rooms, false for hallways
+ * centerX, centerY - middle of each Room's floor Tiles
+ * offsets, adjacent - CSR list of each Room's neighboring Rooms
+ * nextHop, hops, gap - the all pairs tables, indexed [from * rooms + to]
+ */
+public class RoomGraph
+{
+  public static final int NO_ROOM = -1;
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final NavGraph graph;
+  private final int[] roomOf;
+  private final int[] roomZone;
+  private final boolean[] normalRoom;
+  private final int[] centerX, centerY;
+  private final int[] offsets;
+  private final int[] adjacent;
+  private final int[] nextHop;
+  private final int[] hops;
+  private final int[] gap;
+
+  /**
+   * @param graph the NavGraph of the finished house
+   * @param roomOf the Room number of every Tile ID (NO_ROOM where there is none)
+   * @param roomZone the Zone of every Room, indexed by Room number
+   * @param normalRoom the isNormalRoom flag of every Room, indexed by Room number
+   */
+  public RoomGraph(NavGraph graph, int[] roomOf, int[] roomZone, boolean[] normalRoom)
+  {
+    this.graph = graph;
+    this.roomOf = roomOf;
+    this.roomZone = roomZone;
+    this.normalRoom = normalRoom;
+    int rooms = roomZone.length;
+
+    long[] sumX = new long[rooms];
+    long[] sumY = new long[rooms];
+    int[] count = new int[rooms];
+    boolean[][] linked = new boolean[rooms][];
+    int links = 0;
+    for(int id = 0; id < graph.size(); id++)
+    {
+      int room = roomOf[id];
+      if(room == NO_ROOM || !graph.isWalkable(id)) { continue; }
+      sumX[room] += graph.getX(id);
+      sumY[room] += graph.getY(id);
+      count[room]++;
+      for(int e = graph.neighborStart(id); e < graph.neighborEnd(id); e++)
+      {
+        int other = roomOf[graph.neighbor(e)];
+        if(other == NO_ROOM || other == room) { continue; }
+        if(linked[room] == null) { linked[room] = new boolean[rooms]; }
+        if(!linked[room][other])
+        {
+          linked[room][other] = true;
+          links++;
+        }
+      }
+    }
+
+    centerX = new int[rooms];
+    centerY = new int[rooms];
+    offsets = new int[rooms + 1];
+    adjacent = new int[links];
+    int next = 0;
+    for(int room = 0; room < rooms; room++)
+    {
+      if(count[room] > 0)
+      {
+        centerX[room] = (int)(sumX[room] / count[room]);
+        centerY[room] = (int)(sumY[room] / count[room]);
+      }
+      offsets[room] = next;
+      if(linked[room] == null) { continue; }
+      for(int other = 0; other < rooms; other++)
+      {
+        if(linked[room][other]) { adjacent[next++] = other; }
+      }
+    }
+    offsets[rooms] = next;
+
+    nextHop = new int[rooms * rooms];
+    hops = new int[rooms * rooms];
+    gap = new int[rooms * rooms];
+    fillRouteTables(rooms);
+    fillGapTable(rooms);
+  }
+
+  /**
+   * Dijkstra into every Room: the Room each other Room is reached from on
+   * the way back is the first hop of its route there. A breadth first pass
+   * over the Rooms gives the hop counts.
+   */
+  private void fillRouteTables(int rooms)
+  {
+    int[] cost = new int[rooms];
+    int[] from = new int[rooms];
+    int[] queue = new int[rooms];
+    IndexedMinHeap heap = new IndexedMinHeap();
+    for(int to = 0; to < rooms; to++)
+    {
+      Arrays.fill(cost, Integer.MAX_VALUE);
+      Arrays.fill(from, NO_ROOM);
+      heap.clear(rooms);
+      cost[to] = 0;
+      heap.add(to, 0);
+      while(!heap.isEmpty())
+      {
+        int room = heap.poll();
+        for(int e = offsets[room]; e < offsets[room + 1]; e++)
+        {
+          int other = adjacent[e];
+          int otherCost = cost[room] + Math.abs(centerX[room] - centerX[other]) + Math.abs(centerY[room] - centerY[other]);
+          if(otherCost >= cost[other]) { continue; }
+          cost[other] = otherCost;
+          from[other] = room;
+          heap.addOrDecrease(other, otherCost);
+        }
+      }
+      for(int room = 0; room < rooms; room++)
+      {
+        nextHop[room * rooms + to] = (room == to) ? to : from[room];
+      }
+
+      Arrays.fill(hops, to * rooms, (to + 1) * rooms, UNREACHABLE);
+      hops[to * rooms + to] = 0;
+      int head = 0, tail = 0;
+      queue[tail++] = to;
+      while(head < tail)
+      {
+        int room = queue[head++];
+        for(int e = offsets[room]; e < offsets[room + 1]; e++)
+        {
+          int other = adjacent[e];
+          if(hops[to * rooms + other] != UNREACHABLE) { continue; }
+          hops[to * rooms + other] = hops[to * rooms + room] + 1;
+          queue[tail++] = other;
+        }
+      }
+    }
+  }
+
+  /**
+   * A breadth first pass over the Tiles out of all the Tiles of each Room at
+   * once; the first step count each other Room is reached at is the gap
+   */
+  private void fillGapTable(int rooms)
+  {
+    int[] steps = new int[graph.size()];
+    int[] queue = new int[graph.size()];
+    for(int room = 0; room < rooms; room++)
+    {
+      Arrays.fill(steps, UNREACHABLE);
+      Arrays.fill(gap, room * rooms, (room + 1) * rooms, UNREACHABLE);
+      int head = 0, tail = 0;
+      for(int id = 0; id < graph.size(); id++)
+      {
+        if(roomOf[id] != room || !graph.isWalkable(id)) { continue; }
+        steps[id] = 0;
+        queue[tail++] = id;
+      }
+      while(head < tail)
+      {
+        int id = queue[head++];
+        int other = roomOf[id];
+        if(other != NO_ROOM && steps[id] < gap[room * rooms + other]) { gap[room * rooms + other] = steps[id]; }
+        for(int e = graph.neighborStart(id); e < graph.neighborEnd(id); e++)
+        {
+          int next = graph.neighbor(e);
+          if(steps[next] != UNREACHABLE) { continue; }
+          steps[next] = steps[id] + 1;
+          queue[tail++] = next;
+        }
+      }
+    }
+  }
+
+  public NavGraph getNavGraph() { return graph; }
+
+  public int getRoomCount() { return roomZone.length; }
+
+  /**
+   * @return the Room the Tile with ID id is in, or NO_ROOM
+   */
+  public int getRoom(int id)
+  {
+    if(id == NavGraph.NO_TILE) { return NO_ROOM; }
+    return roomOf[id];
+  }
+
+  public int getZone(int room) { return roomZone[room]; }
+
+  public boolean isNormalRoom(int room) { return normalRoom[room]; }
+
+  public int getCenterX(int room) { return centerX[room]; }
+
+  public int getCenterY(int room) { return centerY[room]; }
+
+  public int neighborStart(int room) { return offsets[room]; }
+
+  public int neighborEnd(int room) { return offsets[room + 1]; }
+
+  public int neighbor(int edge) { return adjacent[edge]; }
+
+  /**
+   * Finds the Room to head into next on the way from one Room to another
+   * (a lookup in the table built with the graph)
+   * @param fromRoom the Room the search starts in
+   * @param toRoom the Room the goal is in
+   * @return the neighbor of fromRoom on the cheapest Room route to toRoom,
+   *         toRoom itself if they are the same, or NO_ROOM if there is no route
+   */
+  public int nextRoom(int fromRoom, int toRoom)
+  {
+    if(fromRoom == NO_ROOM || toRoom == NO_ROOM) { return NO_ROOM; }
+    return nextHop[fromRoom * getRoomCount() + toRoom];
+  }
+
+  /**
+   * @return the fewest Room to Room steps between two Rooms,
+   *         or UNREACHABLE (also if either is NO_ROOM)
+   */
+  public int getHops(int fromRoom, int toRoom)
+  {
+    if(fromRoom == NO_ROOM || toRoom == NO_ROOM) { return UNREACHABLE; }
+    return hops[fromRoom * getRoomCount() + toRoom];
+  }
+
+  /**
+   * @return the fewest Tile steps between any Tile of one Room and any Tile
+   *         of the other (0 for the same Room), or UNREACHABLE
+   */
+  public int getGap(int fromRoom, int toRoom)
+  {
+    if(fromRoom == NO_ROOM || toRoom == NO_ROOM) { return UNREACHABLE; }
+    return gap[fromRoom * getRoomCount() + toRoom];
+  }
+
+  /**
+   * A lower bound of the walk between two Tiles from the Rooms they are in,
+   * in O(1): the walk can't be shorter than the gap between the Rooms
+   * @return the bound in Tile steps (0 if either Tile is not in a Room,
+   *         UNREACHABLE if there is no walk between the Rooms)
+   */
+  public int getMinDistance(int fromId, int toId)
+  {
+    int fromRoom = getRoom(fromId);
+    int toRoom = getRoom(toId);
+    if(fromRoom == NO_ROOM || toRoom == NO_ROOM) { return 0; }
+    return gap[fromRoom * getRoomCount() + toRoom];
+  }
+}
@@ -16,12 +16,9 @@ import zombiehouse.common.Player;
  */
 public class Tile
 {
-  public boolean visited = false; // only concerned if visited was used in generation
   public int xCor, yCor;
   public int zone;
   public ArrayList<Tile> neighbors = new ArrayList<>();
-  public Tile ancestor;
-  public int cost;
   public boolean toRemove = false;
   public boolean hasBeenSeen = false;
 	  
@@ -51,12 +48,6 @@ public class Tile
   
   public ArrayList<Tile> getNeighbors() { return neighbors; }
 	  
-  public void setAncestor(Tile parentTile) { ancestor = parentTile; }
-	  
-  public void setVisited(boolean value) { visited = value; }
-	  
-  public void setCost(int cost) { this.cost = cost; }
-  
   public void setToRemove(boolean value) { this.toRemove = value; }
 	  
   public double getXCor() { return xCor; }
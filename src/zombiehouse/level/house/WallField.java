@@ -0,0 +1,169 @@
+package zombiehouse.level.house;
+
+import zombiehouse.common.LevelVar;
+
+/**
+ * WallField is the distance from every point of a house to the nearest
+ * Wall, baked once per level so a collision test is one lookup instead of
+ * a scan of the Tiles around a position.
+ *
+ * The distance is measured at SAMPLES_PER_TILE points per Tile in each
+ * direction and read back with bilinear interpolation, treating Tile (x, y)
+ * as the square [x, x + 1) by [y, y + 1) - the same squares (int)position
+ * picks out. The Simulation, the ChaseSystem, the CollisionSystem and
+ * Zombie.collide() all ask with positions in this convention (and
+ * MainApplication draws Tile x centered on x + 0.5 to match). Distances are
+ * exact at the samples, never negative (0 inside a Wall) and capped at
+ * MAX_DISTANCE, since nothing needs to know about walls further off.
+ *
+ * The gradient of the field points straight away from the nearest Wall,
+ * so getNormalX() / getNormalY() give the direction to push something back
+ * out of a Wall, or to slide it along one.
+ *
+ * Built by Level alongside the NavGraph; costs about
+ * (width * SAMPLES_PER_TILE)^2 floats.
+ *
+ * private final:
+ * house - the Tile[][] the field was baked from
+ * columns, rows - the number of samples across and down
+ * distance - column major: distance[column * rows + row] is the distance
+ *            from (column, row) / SAMPLES_PER_TILE to the nearest Wall
+ */
+public class WallField
+{
+  public static final int SAMPLES_PER_TILE = 4;
+  /**
+   * distances are capped here (in Tiles)
+   */
+  public static final double MAX_DISTANCE = 2;
+
+  private static final double SPACING = 1.0 / SAMPLES_PER_TILE;
+
+  private final Tile[][] house;
+  private final int columns, rows;
+  private final float[] distance;
+
+  /**
+   * Bakes the field of house
+   * @param house a fully generated house
+   */
+  public WallField(Tile[][] house)
+  {
+    this.house = house;
+    int width = house.length;
+    int height = house[0].length;
+    columns = width * SAMPLES_PER_TILE + 1;
+    rows = height * SAMPLES_PER_TILE + 1;
+    distance = new float[columns * rows];
+    boolean[] wall = new boolean[width * height];
+    for(int x = 0; x < width; x++)
+    {
+      for(int y = 0; y < height; y++) { wall[x * height + y] = house[x][y] instanceof Wall; }
+    }
+    int reach = (int)Math.ceil(MAX_DISTANCE) + 1;
+    for(int c = 0; c < columns; c++)
+    {
+      double px = c * SPACING;
+      int tileX = (int)px;
+      for(int r = 0; r < rows; r++)
+      {
+        double py = r * SPACING;
+        int tileY = (int)py;
+        double nearest = MAX_DISTANCE * MAX_DISTANCE;
+        for(int x = Math.max(0, tileX - reach); x <= Math.min(width - 1, tileX + reach); x++)
+        {
+          // how far px is outside the column of Tiles x (0 if inside it)
+          double dx = Math.max(0, Math.max(x - px, px - (x + 1)));
+          if(dx * dx >= nearest) { continue; }
+          for(int y = Math.max(0, tileY - reach); y <= Math.min(height - 1, tileY + reach); y++)
+          {
+            if(!wall[x * height + y]) { continue; }
+            double dy = Math.max(0, Math.max(y - py, py - (y + 1)));
+            nearest = Math.min(nearest, dx * dx + dy * dy);
+          }
+        }
+        distance[c * rows + r] = (float)Math.sqrt(nearest);
+      }
+    }
+  }
+
+  /**
+   * Returns the WallField for house, reusing LevelVar.wallField when it was
+   * baked from the same house and baking (and saving) a new one otherwise
+   */
+  public static WallField forHouse(Tile[][] house)
+  {
+    WallField field = LevelVar.wallField;
+    if(field == null || field.house != house)
+    {
+      field = new WallField(house);
+      LevelVar.wallField = field;
+    }
+    return field;
+  }
+
+  /**
+   * @return the distance (in Tiles, at most MAX_DISTANCE) from (x, y) to
+   *         the nearest Wall; points off the house are clamped onto its edge
+   */
+  public double getDistance(double x, double y)
+  {
+    double u = clamp(x * SAMPLES_PER_TILE, columns - 1);
+    double v = clamp(y * SAMPLES_PER_TILE, rows - 1);
+    int c = Math.min((int)u, columns - 2);
+    int r = Math.min((int)v, rows - 2);
+    double fu = u - c;
+    double fv = v - r;
+    int i = c * rows + r;
+    double left = distance[i] + (distance[i + 1] - distance[i]) * fv;
+    double right = distance[i + rows] + (distance[i + rows + 1] - distance[i + rows]) * fv;
+    return left + (right - left) * fu;
+  }
+
+  /**
+   * @return the X part of the unit vector pointing away from the nearest
+   *         Wall at (x, y), or 0 where there is no clear direction (inside
+   *         a Wall or MAX_DISTANCE from any)
+   */
+  public double getNormalX(double x, double y)
+  {
+    double gx = getDistance(x + SPACING, y) - getDistance(x - SPACING, y);
+    double gy = getDistance(x, y + SPACING) - getDistance(x, y - SPACING);
+    double length = Math.sqrt(gx * gx + gy * gy);
+    return (length == 0) ? 0 : gx / length;
+  }
+
+  /**
+   * @return the Y part of the unit vector pointing away from the nearest Wall
+   */
+  public double getNormalY(double x, double y)
+  {
+    double gx = getDistance(x + SPACING, y) - getDistance(x - SPACING, y);
+    double gy = getDistance(x, y + SPACING) - getDistance(x, y - SPACING);
+    double length = Math.sqrt(gx * gx + gy * gy);
+    return (length == 0) ? 0 : gy / length;
+  }
+
+  /**
+   * Whether something at (x, y) can move to (toX, toY): it ends up more than
+   * clearance from every Wall, or, if it already overlaps one (it was put
+   * there), the move takes it further out
+   */
+  public boolean canMove(double x, double y, double toX, double toY, double clearance)
+  {
+    double after = getDistance(toX, toY);
+    return after > clearance || after > getDistance(x, y);
+  }
+
+  public Tile[][] getHouse() { return house; }
+
+  /**
+   * @return the bytes taken by the samples
+   */
+  public long getMemoryBytes() { return 4L * distance.length; }
+
+  private static double clamp(double value, double max)
+  {
+    return Math.max(0, Math.min(max, value));
+  }
+}
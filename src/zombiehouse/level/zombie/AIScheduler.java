@@ -0,0 +1,618 @@
+package zombiehouse.level.zombie;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import zombiehouse.common.LevelVar;
+import zombiehouse.common.WorldSnapshot;
+import zombiehouse.level.house.RoomGraph;
+import zombiehouse.level.house.Tile;
+
+/**
+ * AIScheduler runs the Zombies' decisions (makeDecision()), each Zombie once
+ * every decision period, spread over all of the processors. There is one for
+ * the whole game; each level is started with startLevel(), which stops the
+ * last level's decisions first, so moving between levels never leaves an
+ * old level's Zombies deciding in the background.
+ *
+ * The decisions aren't all made at once every period (a spike of work every
+ * two seconds that showed up as a hitch): the period is cut into slices of
+ * sliceMillis, and each Zombie is given one of the slices by its zombieID,
+ * so the Zombies are spread evenly over the period. Every slice the Zombies
+ * whose turn it is join a queue, and decisions are taken off the front of
+ * the queue until the slice's budget (budgetMicros) is spent. Whatever
+ * doesn't fit stays at the front of the queue for the next slice, and a
+ * Zombie still waiting when its turn comes round again isn't queued twice,
+ * so a slow stretch delays decisions instead of piling them up.
+ *
+ * Not every Zombie's turn is used: when it comes up, the Zombie's distance
+ * to the Player in the snapshot picks its AITier. NEAR Zombies are queued
+ * every turn and MID ones on one turn in AITier.MID.every. DORMANT ones are
+ * put to sleep (Zombie.goDormant()): they are taken out of their slice
+ * altogether and kept in a list for the Room they are in, so they cost
+ * nothing at all until an event wakes them:
+ *  - the Player entering a Room within LevelVar.AI_DORMANT_RADIUS steps
+ *    (RoomGraph gap) of theirs, which covers the Player's own Room and
+ *    every Room the scent field can reach
+ *  - a MasterZombie telling every Zombie it can smell the Player
+ * A woken Zombie decides straight away and is back in its slice after
+ * that. The cost of a slice goes with the number of awake Zombies, not the
+ * number in the house.
+ *
+ * Queued decisions are made in rounds of (parallelism * BATCH_SIZE) Zombies,
+ * split into batches of BATCH_SIZE decided in parallel on a ForkJoinPool;
+ * the clock is checked between rounds, and at least one round is made every
+ * slice. MasterZombies tell every other Zombie whether they can smell the
+ * Player, so the ones in a round decide after the rest, one at a time, and
+ * the scheduler passes on what each found (tell()) while no other Zombie is
+ * deciding.
+ *
+ * Zombies don't look at the live game while deciding: each slice takes the
+ * WorldSnapshot last published in LevelVar.world, shows it to every Zombie
+ * (Zombie.observe()) and has each hand its decision back as a ZombieIntent
+ * (Zombie.publishIntent()) for the game to apply.
+ *
+ * stopLevel() marks the level stopped and waits for a slice that is already
+ * running, so a level can be stopped and then regenerated without a Zombie
+ * deciding on a half built house; a slice that starts after that (one the
+ * ticker had already taken off its queue) sees the mark and does nothing.
+ * A slice also does nothing if the last snapshot isn't of the house its
+ * level was started on (the new level hasn't been published yet).
+ *
+ * Nothing a Zombie throws is hidden: it is counted and kept (getLastFailure())
+ * and the other Zombies carry on. How long each slice took and how many
+ * decisions were left waiting is kept, and slices that ran over their budget
+ * by more than a whole slice are counted (getOverruns()). With
+ * LevelVar.AI_DEBUG_TEXT on, the first failure of each level is printed with
+ * its stack trace when it happens, and stopLevel() prints the level's
+ * slices, their average and longest time, overruns and failures.
+ *
+ * private:
+ * sliceMillis - how often a slice starts
+ * budgetNanos - how long a slice may spend deciding
+ * pool - decides the batches
+ * ticker - starts a slice every sliceMillis, after the last one has finished
+ * levelTask - the current level's slices (null when no level is running)
+ * levelRun - the current level's LevelRun (null when no level is running)
+ * tickLock - held for the whole of a slice
+ * ticks, decisions, skipped, wakeups, failures, overruns - statistics over
+ *   all levels
+ * dormant - the current level's Zombies asleep after the last slice
+ * lastTickNanos, maxTickNanos - how long the last / longest slice took
+ * backlog, maxBacklog - decisions left waiting after the last slice / at most
+ * lastFailure - the last exception a Zombie threw
+ */
+public class AIScheduler
+{
+  /**
+   * the most Zombies decided one after another by a single task
+   */
+  public static final int BATCH_SIZE = 4;
+  public static final long DEFAULT_SLICE_MILLIS = 16;
+  public static final long DEFAULT_BUDGET_MICROS = 2000;
+
+  private final long sliceMillis;
+  private final long budgetNanos;
+  private final ForkJoinPool pool;
+  private final ScheduledExecutorService ticker;
+  private ScheduledFuture<?> levelTask;
+  private LevelRun levelRun;
+  private final Object tickLock = new Object();
+  private final AtomicLong ticks = new AtomicLong();
+  private final AtomicLong decisions = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong wakeups = new AtomicLong();
+  private volatile int dormant = 0;
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong overruns = new AtomicLong();
+  private volatile long lastTickNanos = 0;
+  private volatile long maxTickNanos = 0;
+  private volatile int backlog = 0;
+  private volatile int maxBacklog = 0;
+  private volatile Throwable lastFailure;
+
+  /**
+   * Makes a scheduler that decides on every processor, with
+   * DEFAULT_SLICE_MILLIS and DEFAULT_BUDGET_MICROS
+   */
+  public AIScheduler()
+  {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_SLICE_MILLIS, DEFAULT_BUDGET_MICROS);
+  }
+
+  /**
+   * @param parallelism how many threads decide at once
+   */
+  public AIScheduler(int parallelism)
+  {
+    this(parallelism, DEFAULT_SLICE_MILLIS, DEFAULT_BUDGET_MICROS);
+  }
+
+  /**
+   * @param parallelism how many threads decide at once
+   * @param sliceMillis how often a slice of the decisions is made
+   * @param budgetMicros how long each slice may spend deciding
+   */
+  public AIScheduler(int parallelism, long sliceMillis, long budgetMicros)
+  {
+    this.sliceMillis = Math.max(1, sliceMillis);
+    this.budgetNanos = TimeUnit.MICROSECONDS.toNanos(budgetMicros);
+    this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    this.ticker = Executors.newSingleThreadScheduledExecutor(task ->
+    {
+      Thread thread = new Thread(task, "AIScheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * A level's Zombies, which slice of the period each of them decides in,
+   * the queue of the ones waiting to decide, and the sleeping ones by Room.
+   * Only used by the slices, which never run at the same time, apart from
+   * stopped, which stopLevel() sets, and the failures, which the deciding
+   * threads count.
+   */
+  private static class LevelRun
+  {
+    final Tile[][] house;
+    final RoomGraph rooms;
+    final Zombie[] zombies;
+    // the awake Zombies of each slot, and where each Zombie is in its slot's (-1 asleep)
+    final int[] slotOf;
+    final int[][] slotMembers;
+    final int[] slotCount;
+    final int[] slotIndex;
+    final boolean[] queued;
+    final int[] turns;
+    final AITier[] tiers;
+    // the sleeping Zombies of each Room, linked through nextSleeper (-1 ends a list)
+    final int[] roomSleepers;
+    final int[] nextSleeper;
+    int sleeping = 0;
+    int playerRoom = RoomGraph.NO_ROOM;
+    final int[] queue;
+    int head = 0;
+    int size = 0;
+    long slice = 0;
+    // a round's Zombies, reused every round
+    final Zombie[] followers;
+    final Zombie[] masters;
+    volatile boolean stopped = false;
+    // this level's statistics, for the summary stopLevel() prints
+    long ticks = 0;
+    long tickNanos = 0;
+    long maxTickNanos = 0;
+    long overruns = 0;
+    final AtomicLong failures = new AtomicLong();
+    final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    LevelRun(Tile[][] house, RoomGraph rooms, List<Zombie> zombieList, int slots, int roundSize)
+    {
+      this.house = house;
+      this.rooms = rooms;
+      followers = new Zombie[roundSize];
+      masters = new Zombie[roundSize];
+      int count = 0;
+      for(Zombie zombie : zombieList) { if(zombie != null) { count++; } }
+      zombies = new Zombie[count];
+      slotOf = new int[count];
+      slotIndex = new int[count];
+      slotCount = new int[slots];
+      count = 0;
+      for(Zombie zombie : zombieList)
+      {
+        if(zombie == null) { continue; }
+        slotOf[count] = Math.floorMod(zombie.zombieID, slots);
+        slotCount[slotOf[count]]++;
+        zombies[count++] = zombie;
+      }
+      slotMembers = new int[slots][];
+      for(int s = 0; s < slots; s++) { slotMembers[s] = new int[slotCount[s]]; slotCount[s] = 0; }
+      for(int i = 0; i < zombies.length; i++) { addToSlot(i); }
+      queued = new boolean[zombies.length];
+      turns = new int[zombies.length];
+      tiers = new AITier[zombies.length];
+      roomSleepers = new int[(rooms == null) ? 0 : rooms.getRoomCount()];
+      Arrays.fill(roomSleepers, -1);
+      nextSleeper = new int[zombies.length];
+      queue = new int[Math.max(1, zombies.length)];
+    }
+
+    private void addToSlot(int i)
+    {
+      int s = slotOf[i];
+      slotIndex[i] = slotCount[s];
+      slotMembers[s][slotCount[s]++] = i;
+    }
+
+    private void removeFromSlot(int i)
+    {
+      int s = slotOf[i];
+      int last = slotMembers[s][--slotCount[s]];
+      slotMembers[s][slotIndex[i]] = last;
+      slotIndex[last] = slotIndex[i];
+      slotIndex[i] = -1;
+    }
+
+    /**
+     * Queues the awake Zombies whose turn this slice is (unless still
+     * queued, or their AITier skips this turn), and puts the ones that
+     * have become DORMANT to sleep
+     * @return the number of turns skipped
+     */
+    int enqueueDue(WorldSnapshot world)
+    {
+      int skip = 0;
+      int s = (int)(slice++ % slotMembers.length);
+      for(int k = slotCount[s] - 1; k >= 0; k--)
+      {
+        int i = slotMembers[s][k];
+        if(queued[i]) { continue; }
+        Zombie zombie = zombies[i];
+        double dx = world.getX(zombie) - world.getPlayerX();
+        double dy = world.getY(zombie) - world.getPlayerY();
+        AITier tier = AITier.of(dx * dx + dy * dy, zombie.getSmell());
+        if(tier == AITier.DORMANT && sleep(i, world))
+        {
+          skip++;
+          continue;
+        }
+        if(tier != tiers[i])
+        {
+          tiers[i] = tier;
+          turns[i] = 0;
+        }
+        if(tier == AITier.DORMANT || turns[i]++ % tier.every != 0)
+        {
+          skip++;
+          continue;
+        }
+        enqueue(i);
+      }
+      return skip;
+    }
+
+    private void enqueue(int i)
+    {
+      if(queued[i]) { return; }
+      queued[i] = true;
+      queue[(head + size++) % queue.length] = i;
+    }
+
+    /**
+     * Puts Zombie i to sleep in the Room it is in
+     * @return false if it isn't in a Room (so no event could wake it)
+     */
+    private boolean sleep(int i, WorldSnapshot world)
+    {
+      if(rooms == null || rooms.getNavGraph() != world.getGraph()) { return false; }
+      Zombie zombie = zombies[i];
+      int room = rooms.getRoom(world.getGraph().getId((int) world.getX(zombie), (int) world.getY(zombie)));
+      if(room == RoomGraph.NO_ROOM) { return false; }
+      removeFromSlot(i);
+      nextSleeper[i] = roomSleepers[room];
+      roomSleepers[room] = i;
+      sleeping++;
+      zombie.goDormant(world);
+      return true;
+    }
+
+    /**
+     * Wakes every Zombie sleeping in room and queues it to decide
+     * @return the number woken
+     */
+    private int wakeRoom(int room)
+    {
+      int woken = 0;
+      for(int i = roomSleepers[room]; i != -1; i = nextSleeper[i])
+      {
+        zombies[i].wake();
+        addToSlot(i);
+        tiers[i] = null;
+        enqueue(i);
+        woken++;
+      }
+      roomSleepers[room] = -1;
+      sleeping -= woken;
+      return woken;
+    }
+
+    /**
+     * The Player entered a new Room: wake the Zombies in the Rooms within
+     * LevelVar.AI_DORMANT_RADIUS steps of it (which takes in every Room the
+     * Player's scent can reach)
+     * @return the number woken
+     */
+    int playerMoved(WorldSnapshot world)
+    {
+      if(sleeping == 0 || rooms == null || rooms.getNavGraph() != world.getGraph()) { return 0; }
+      int room = rooms.getRoom(world.getGraph().getId((int) world.getPlayerX(), (int) world.getPlayerY()));
+      if(room == playerRoom || room == RoomGraph.NO_ROOM) { return 0; }
+      playerRoom = room;
+      int woken = 0;
+      for(int r = 0; r < roomSleepers.length; r++)
+      {
+        if(roomSleepers[r] != -1 && rooms.getGap(room, r) <= LevelVar.AI_DORMANT_RADIUS) { woken += wakeRoom(r); }
+      }
+      return woken;
+    }
+
+    /**
+     * A MasterZombie told every Zombie it can smell the Player: wake them all
+     * @return the number woken
+     */
+    int wakeAll()
+    {
+      int woken = 0;
+      for(int r = 0; r < roomSleepers.length && sleeping > 0; r++) { woken += wakeRoom(r); }
+      return woken;
+    }
+
+    /**
+     * Passes on to every Zombie whether a MasterZombie smelt the Player;
+     * only called between decisions, so no Zombie is deciding meanwhile
+     */
+    void tell(boolean smelt)
+    {
+      for(Zombie zombie : zombies) { zombie.setSmell(smelt); }
+    }
+
+    int poll()
+    {
+      int i = queue[head];
+      head = (head + 1) % queue.length;
+      size--;
+      queued[i] = false;
+      return i;
+    }
+  }
+
+  /**
+   * A run of Zombies in an array, decided one after another, or split in
+   * two and forked if there are more than BATCH_SIZE
+   */
+  private class Batch extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final LevelRun run;
+    private final Zombie[] zombies;
+    private final int from, to;
+    private final WorldSnapshot world;
+
+    Batch(LevelRun run, Zombie[] zombies, int from, int to, WorldSnapshot world)
+    {
+      this.run = run;
+      this.zombies = zombies;
+      this.from = from;
+      this.to = to;
+      this.world = world;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if(to - from <= BATCH_SIZE)
+      {
+        for(int i = from; i < to; i++) { decide(run, zombies[i], world); }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new Batch(run, zombies, from, middle, world), new Batch(run, zombies, middle, to, world));
+    }
+  }
+
+  /**
+   * Stops the last level's decisions and starts deciding for zombies, on
+   * the house in LevelVar.house
+   * @param zombies the new level's Zombies (copied, so later changes to the
+   *                list aren't seen)
+   * @param periodMillis how often each Zombie decides
+   */
+  public synchronized void startLevel(List<Zombie> zombies, long periodMillis)
+  {
+    stopLevel();
+    int slots = (int)Math.max(1, periodMillis / sliceMillis);
+    final LevelRun run = new LevelRun(LevelVar.house, LevelVar.roomGraph, zombies, slots, pool.getParallelism() * BATCH_SIZE);
+    levelRun = run;
+    levelTask = ticker.scheduleWithFixedDelay(() -> tick(run), sliceMillis, sliceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the current level's decisions, waiting for a slice already
+   * running to finish; call before the level is regenerated
+   */
+  public synchronized void stopLevel()
+  {
+    if(levelTask != null)
+    {
+      LevelRun run = levelRun;
+      run.stopped = true;
+      levelTask.cancel(false);
+      levelTask = null;
+      levelRun = null;
+      synchronized(tickLock)
+      {
+        if(LevelVar.AI_DEBUG_TEXT) { report(run); }
+      }
+    }
+  }
+
+  /**
+   * Prints what a stopped level's slices took and how many failed
+   */
+  private void report(LevelRun run)
+  {
+    long average = (run.ticks == 0) ? 0 : run.tickNanos / run.ticks;
+    System.out.println("AI: " + run.zombies.length + " zombies, " + run.ticks + " slices, "
+                       + TimeUnit.NANOSECONDS.toMicros(average) + " us average, "
+                       + TimeUnit.NANOSECONDS.toMicros(run.maxTickNanos) + " us longest ("
+                       + TimeUnit.NANOSECONDS.toMicros(budgetNanos) + " us budget), "
+                       + run.overruns + " overruns, " + run.failures.get() + " failures");
+  }
+
+  /**
+   * One slice: queue the Zombies whose turn it is, then decide from the
+   * front of the queue until the budget is spent
+   */
+  private void tick(LevelRun run)
+  {
+    long start = System.nanoTime();
+    synchronized(tickLock)
+    {
+      if(run.stopped) { return; }
+      WorldSnapshot world = LevelVar.world.get();
+      if(world == null || world.getHouse() != run.house) { return; }
+      long woke = run.playerMoved(world);
+      skipped.addAndGet(run.enqueueDue(world));
+      Zombie[] followers = run.followers;
+      Zombie[] masters = run.masters;
+      int roundSize = followers.length;
+      do
+      {
+        int followerCount = 0;
+        int masterCount = 0;
+        while(run.size > 0 && followerCount + masterCount < roundSize)
+        {
+          Zombie zombie = run.zombies[run.poll()];
+          if(zombie.getKind() == ZombieKind.MASTER) { masters[masterCount++] = zombie; }
+          else                                      { followers[followerCount++] = zombie; }
+        }
+        try
+        {
+          if(followerCount > 0) { pool.invoke(new Batch(run, followers, 0, followerCount, world)); }
+          for(int i = 0; i < masterCount; i++)
+          {
+            decide(run, masters[i], world);
+            boolean smelt = masters[i].getSmell();
+            run.tell(smelt);
+            if(smelt && run.sleeping > 0) { woke += run.wakeAll(); }
+          }
+        }
+        catch(Throwable e)
+        {
+          // keep the level's slices going; an Error thrown out of a slice would cancel them
+          failed(run, null, e);
+        }
+        decisions.addAndGet(followerCount + masterCount);
+      }
+      while(run.size > 0 && System.nanoTime() - start < budgetNanos);
+      backlog = run.size;
+      if(run.size > maxBacklog) { maxBacklog = run.size; }
+      dormant = run.sleeping;
+      wakeups.addAndGet(woke);
+      long took = System.nanoTime() - start;
+      lastTickNanos = took;
+      if(took > maxTickNanos) { maxTickNanos = took; }
+      ticks.incrementAndGet();
+      run.ticks++;
+      run.tickNanos += took;
+      if(took > run.maxTickNanos) { run.maxTickNanos = took; }
+      if(took - budgetNanos > TimeUnit.MILLISECONDS.toNanos(sliceMillis))
+      {
+        overruns.incrementAndGet();
+        run.overruns++;
+      }
+    }
+  }
+
+  private void decide(LevelRun run, Zombie zombie, WorldSnapshot world)
+  {
+    try
+    {
+      zombie.observe(world);
+      zombie.makeDecision();
+      zombie.publishIntent();
+    }
+    catch(RuntimeException e)
+    {
+      failed(run, zombie, e);
+    }
+  }
+
+  /**
+   * Counts and keeps a failure; the level's first is printed straight away
+   * @param zombie the Zombie that threw e, or null if the slice itself did
+   */
+  private void failed(LevelRun run, Zombie zombie, Throwable e)
+  {
+    failures.incrementAndGet();
+    lastFailure = e;
+    run.failures.incrementAndGet();
+    if(run.firstFailure.compareAndSet(null, e) && LevelVar.AI_DEBUG_TEXT)
+    {
+      System.err.println((zombie == null ? "AI slice" : "Zombie " + zombie.zombieID) + " failed to decide"
+                         + " (later failures this level are only counted):");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Stops deciding for good, along with the Zombies' PathService
+   */
+  public synchronized void shutdown()
+  {
+    stopLevel();
+    ticker.shutdownNow();
+    pool.shutdownNow();
+    Zombie.shutdownPathService();
+  }
+
+  /**
+   * @return the number of slices run
+   */
+  public long getTicks() { return ticks.get(); }
+
+  public long getDecisions() { return decisions.get(); }
+
+  /**
+   * @return turns not used because of the Zombies' AITier
+   */
+  public long getSkipped() { return skipped.get(); }
+
+  /**
+   * @return the current level's Zombies asleep after the last slice
+   */
+  public int getDormant() { return dormant; }
+
+  /**
+   * @return Zombies woken by the Player moving or a MasterZombie's broadcast
+   */
+  public long getWakeups() { return wakeups.get(); }
+
+  public long getFailures() { return failures.get(); }
+
+  /**
+   * @return slices that ran over their budget by more than a whole slice
+   */
+  public long getOverruns() { return overruns.get(); }
+
+  /**
+   * @return the last exception a Zombie threw while deciding, or null
+   */
+  public Throwable getLastFailure() { return lastFailure; }
+
+  public long getLastTickNanos() { return lastTickNanos; }
+
+  public long getMaxTickNanos() { return maxTickNanos; }
+
+  /**
+   * @return decisions that didn't fit in the last slice's budget
+   */
+  public int getBacklog() { return backlog; }
+
+  public int getMaxBacklog() { return maxBacklog; }
+
+  /**
+   * @return how many threads decide at once
+   */
+  public int getParallelism() { return pool.getParallelism(); }
+}
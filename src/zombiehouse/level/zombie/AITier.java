@@ -0,0 +1,45 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.common.LevelVar;
+
+/**
+ * How much attention the AIScheduler pays a Zombie, by how far it is from
+ * the Player (straight line, in Tiles, as of the last WorldSnapshot)
+ *
+ * NEAR - within LevelVar.AI_NEAR_RADIUS: decides every turn
+ * MID - within LevelVar.AI_DORMANT_RADIUS: decides every MID_EVERY'th turn
+ * DORMANT - further away: is put to sleep until an event wakes it (see
+ *           AIScheduler) and stops hunting
+ *
+ * A Zombie that has been told it can smell the Player (by a MasterZombie)
+ * is NEAR however far away it is.
+ */
+public enum AITier
+{
+  NEAR(1),
+  MID(4),
+  DORMANT(0);
+
+  /**
+   * decide on one in every this many turns (0: never)
+   */
+  public final int every;
+
+  private AITier(int every)
+  {
+    this.every = every;
+  }
+
+  /**
+   * @param distanceSquared the square of the Zombie's distance to the Player
+   * @param smelling whether the Zombie has been told it can smell the Player
+   * @return the tier the Zombie is in
+   */
+  public static AITier of(double distanceSquared, boolean smelling)
+  {
+    if(!LevelVar.AI_LOD || smelling) { return NEAR; }
+    if(distanceSquared <= LevelVar.AI_NEAR_RADIUS * LevelVar.AI_NEAR_RADIUS) { return NEAR; }
+    if(distanceSquared <= LevelVar.AI_DORMANT_RADIUS * LevelVar.AI_DORMANT_RADIUS) { return MID; }
+    return DORMANT;
+  }
+}
@@ -0,0 +1,252 @@
+package zombiehouse.level.zombie;
+
+import java.util.concurrent.atomic.AtomicLong;
+import zombiehouse.common.LevelVar;
+import zombiehouse.level.house.Landmarks;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.level.house.RoomGraph;
+import zombiehouse.util.IndexedMinHeap;
+
+/**
+ * AStar is a point to point A* search over a NavGraph.
+ *
+ * The open list is an IndexedMinHeap keyed by f = g + h so a Tile found again
+ * by a cheaper route has its cost lowered in place (decrease-key), and Tiles
+ * that have been expanded are closed and never looked at again. Moves cost 1
+ * and only go in the 4 compass directions, so the Manhattan distance is an
+ * exact lower bound of the remaining cost. When the level's Landmarks are
+ * built (and LevelVar.ALT_HEURISTIC is on) the heuristic is the larger of that
+ * and the landmark bound, which also accounts for the walls in the way.
+ *
+ * Ties on f are broken toward the Tile closer to the goal, which keeps the
+ * search from fanning out across open rooms where many routes cost the same.
+ *
+ * Each instance owns its SearchWorkspace and heap and must only run one
+ * search at a time. Zombies don't keep one each: they use the one pooled for
+ * the thread they run on (forThread()), so the search arrays exist once per
+ * thread rather than once per Zombie. The number of Tiles expanded is kept
+ * per search and in total (over all instances) so the cost of path finding
+ * can be measured.
+ *
+ * private:
+ * workspace - visited / closed / ancestor / g cost of the current search
+ * open - the open list
+ * graph, goalId, goalX, goalY - the search in progress
+ * rooms, fromRoom, toRoom, stopAtRoom - the Rooms it is kept to, if any
+ * landmarks - the ALT tables used by the current search, or null
+ * lastExpanded - how many Tiles the last search expanded (over all its slices)
+ * sliceExpanded - how many Tiles the last call to resume() expanded
+ */
+public class AStar
+{
+  /**
+   * f is scaled by this before adding h so a lower f always wins
+   * and h only decides between equal f
+   */
+  private static final int TIE_BREAK_SCALE = 1 << 12;
+
+  /**
+   * returned by resume() when the search isn't finished yet
+   */
+  public static final int IN_PROGRESS = -2;
+
+  private static final AtomicLong totalExpanded = new AtomicLong();
+  private static final AtomicLong totalSearches = new AtomicLong();
+  private static final ThreadLocal<AStar> perThread = new ThreadLocal<AStar>()
+  {
+    @Override
+    protected AStar initialValue() { return new AStar(); }
+  };
+
+  private final SearchWorkspace workspace = new SearchWorkspace();
+  private final IndexedMinHeap open = new IndexedMinHeap();
+  private NavGraph graph;
+  private int goalId, goalX, goalY;
+  private RoomGraph rooms;
+  private int fromRoom, toRoom;
+  private boolean stopAtRoom;
+  private Landmarks landmarks;
+  private int lastExpanded = 0;
+  private int sliceExpanded = 0;
+
+  /**
+   * @return the AStar pooled for the calling thread
+   */
+  public static AStar forThread() { return perThread.get(); }
+
+  /**
+   * Searches graph for the cheapest route from startId to goalId
+   * @param graph the NavGraph to search
+   * @param startId the ID to start from
+   * @param goalId the ID to find
+   * @return true if goalId was reached (the route can then be read with buildPath)
+   */
+  public boolean search(NavGraph graph, int startId, int goalId)
+  {
+    return run(graph, startId, goalId, null, RoomGraph.NO_ROOM, RoomGraph.NO_ROOM) != NavGraph.NO_TILE;
+  }
+
+  /**
+   * Searches only the Tiles of two neighboring Rooms (the refining half of a
+   * room level search). If goalId is in toRoom the search runs to it,
+   * otherwise it stops at the first Tile of toRoom it reaches, still steered
+   * by the distance to goalId so it takes the door nearest the way on.
+   * @param rooms the RoomGraph of the house (its NavGraph is searched)
+   * @param startId the ID to start from, in fromRoom
+   * @param goalId the final goal
+   * @param fromRoom the Room the search starts in
+   * @param toRoom the Room to get into (may be fromRoom)
+   * @return the ID the route found ends at, or NavGraph.NO_TILE
+   */
+  public int searchToRoom(RoomGraph rooms, int startId, int goalId, int fromRoom, int toRoom)
+  {
+    return run(rooms.getNavGraph(), startId, goalId, rooms, fromRoom, toRoom);
+  }
+
+  /**
+   * Starts a search for the cheapest route from startId to goalId that is
+   * then run a slice at a time with resume(), so a long search can be spread
+   * over several ticks (see PathService)
+   * @param graph the NavGraph to search
+   * @param startId the ID to start from
+   * @param goalId the ID to find
+   */
+  public void begin(NavGraph graph, int startId, int goalId)
+  {
+    begin(graph, startId, goalId, null, RoomGraph.NO_ROOM, RoomGraph.NO_ROOM);
+  }
+
+  /**
+   * Expands at most maxExpansions more Tiles of the search started by begin()
+   * @return the ID the route found ends at, NavGraph.NO_TILE if there is no
+   *         route, or IN_PROGRESS if the search ran out of expansions first
+   */
+  public int resume(int maxExpansions)
+  {
+    int found = expand(maxExpansions);
+    totalExpanded.addAndGet(sliceExpanded);
+    return found;
+  }
+
+  /**
+   * The A* itself; rooms == null searches the whole graph
+   */
+  private int run(NavGraph graph, int startId, int goalId, RoomGraph rooms, int fromRoom, int toRoom)
+  {
+    begin(graph, startId, goalId, rooms, fromRoom, toRoom);
+    return resume(Integer.MAX_VALUE);
+  }
+
+  private void begin(NavGraph graph, int startId, int goalId, RoomGraph rooms, int fromRoom, int toRoom)
+  {
+    lastExpanded = 0;
+    totalSearches.incrementAndGet();
+    this.graph = graph;
+    this.goalId = goalId;
+    this.rooms = rooms;
+    this.fromRoom = fromRoom;
+    this.toRoom = toRoom;
+    open.clear(graph.size());
+    if(startId == NavGraph.NO_TILE || goalId == NavGraph.NO_TILE) { return; }
+    stopAtRoom = rooms != null && rooms.getRoom(goalId) != toRoom;
+    goalX = graph.getX(goalId);
+    goalY = graph.getY(goalId);
+    landmarks = LevelVar.ALT_HEURISTIC ? LevelVar.landmarks : null;
+    if(landmarks != null && landmarks.getNavGraph() != graph) { landmarks = null; }
+
+    workspace.begin(graph.size());
+    workspace.visit(startId, NavGraph.NO_TILE, 0);
+    open.add(startId, priority(0, heuristic(startId)));
+  }
+
+  private int expand(int maxExpansions)
+  {
+    sliceExpanded = 0;
+    while(!open.isEmpty())
+    {
+      if(sliceExpanded == maxExpansions) { return IN_PROGRESS; }
+      int currentId = open.poll();
+      if(currentId == goalId || (stopAtRoom && rooms.getRoom(currentId) == toRoom))
+      {
+        return currentId;
+      }
+      workspace.close(currentId);
+      lastExpanded++;
+      sliceExpanded++;
+      int nextCost = workspace.getCost(currentId) + 1;
+      for(int e = graph.neighborStart(currentId); e < graph.neighborEnd(currentId); e++)
+      {
+        int nextId = graph.neighbor(e);
+        if(workspace.isClosed(nextId)) { continue; }
+        if(rooms != null)
+        {
+          int room = rooms.getRoom(nextId);
+          if(room != fromRoom && room != toRoom) { continue; }
+        }
+        if(workspace.isVisited(nextId))
+        {
+          if(nextCost >= workspace.getCost(nextId)) { continue; }
+          workspace.visit(nextId, currentId, nextCost);
+          open.decreaseKey(nextId, priority(nextCost, heuristic(nextId)));
+        }
+        else
+        {
+          workspace.visit(nextId, currentId, nextCost);
+          open.add(nextId, priority(nextCost, heuristic(nextId)));
+        }
+      }
+    }
+    return NavGraph.NO_TILE;
+  }
+
+  /**
+   * Lower bound of the steps from id to the goal: the Manhattan distance,
+   * raised to the landmark bound if there is one
+   */
+  private int heuristic(int id)
+  {
+    int manhattan = Math.abs(graph.getX(id) - goalX) + Math.abs(graph.getY(id) - goalY);
+    if(landmarks == null) { return manhattan; }
+    return Math.max(manhattan, landmarks.lowerBound(id, goalId));
+  }
+
+  private int priority(int g, int h)
+  {
+    return (g + h) * TIE_BREAK_SCALE + Math.min(h, TIE_BREAK_SCALE - 1);
+  }
+
+  /**
+   * Fills path with the Tiles of the route the last successful search found,
+   * from its start to goalId (both included)
+   * @param graph the NavGraph that was searched
+   * @param goalId the ID the route ends at
+   * @param path the path to fill (anything in it is replaced)
+   */
+  public void buildPath(NavGraph graph, int goalId, IntPath path)
+  {
+    path.clear(graph);
+    int length = 0;
+    for(int id = goalId; id != NavGraph.NO_TILE; id = workspace.getAncestor(id)) { length++; }
+    // written goal first, back to front
+    path.setLength(length);
+    for(int id = goalId; id != NavGraph.NO_TILE; id = workspace.getAncestor(id))
+    {
+      path.set(--length, id);
+    }
+  }
+
+  /**
+   * @return the number of Tiles the last search expanded
+   */
+  public int getLastExpanded() { return lastExpanded; }
+
+  /**
+   * @return the number of Tiles expanded by every AStar search so far
+   */
+  public static long getTotalExpanded() { return totalExpanded.get(); }
+
+  /**
+   * @return the number of AStar searches run so far
+   */
+  public static long getTotalSearches() { return totalSearches.get(); }
+}
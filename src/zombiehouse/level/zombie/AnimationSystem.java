@@ -0,0 +1,89 @@
+package zombiehouse.level.zombie;
+
+/**
+ * AnimationSystem works out how every Zombie is drawn in a frame: where
+ * (part way between its position before and after the last Simulation step),
+ * and, for the ones within radius of the Player, which way they face (at the
+ * Player) and which animation frame they are on. The frames run back and
+ * forth through FRAMES of them, one step each time the frames advance.
+ * Whatever draws the Zombies then only copies the render columns onto each
+ * one's view (see ZombieStore.getView()).
+ *
+ * Writes renderX, renderY, facing, frame, frameStep and IN_VIEW in state;
+ * reads position.
+ *
+ * private:
+ * radius - as given to the constructor
+ * alpha, playerX, playerY, advance - what aim() set up for the next pass
+ */
+public class AnimationSystem implements ZombieSystem
+{
+  /**
+   * the number of animation frames a Zombie runs through
+   */
+  public static final int FRAMES = 8;
+
+  private final double radius;
+  private double alpha, playerX, playerY;
+  private boolean advance;
+
+  /**
+   * @param radius how near (in Tiles) a Zombie has to be to the Player to be turned and animated
+   */
+  public AnimationSystem(double radius)
+  {
+    this.radius = radius;
+  }
+
+  /**
+   * Sets up the next pass
+   * @param alpha how far (0 to 1) the frame is between the last step and the next
+   * @param playerX, playerY where the Player is drawn
+   * @param advance whether the Zombies in view go on to their next frame
+   */
+  public void aim(double alpha, double playerX, double playerY, boolean advance)
+  {
+    this.alpha = alpha;
+    this.playerX = playerX;
+    this.playerY = playerY;
+    this.advance = advance;
+  }
+
+  @Override
+  public void run(ZombieStore store, int from, int to)
+  {
+    final double[] x = store.x, y = store.y, lastX = store.lastX, lastY = store.lastY;
+    final double[] renderX = store.renderX, renderY = store.renderY, facing = store.facing;
+    final byte[] state = store.state, frame = store.frame, frameStep = store.frameStep;
+    double radiusSquared = radius * radius;
+    for(int i = from; i < to; i++)
+    {
+      double drawX = lastX[i] + (x[i] - lastX[i]) * alpha;
+      double drawY = lastY[i] + (y[i] - lastY[i]) * alpha;
+      renderX[i] = drawX;
+      renderY[i] = drawY;
+      double vectorX = drawX - playerX;
+      double vectorY = drawY - playerY;
+      if(vectorX * vectorX + vectorY * vectorY >= radiusSquared)
+      {
+        state[i] &= ~ZombieStore.IN_VIEW;
+        continue;
+      }
+      state[i] |= ZombieStore.IN_VIEW;
+      facing[i] = (Math.toDegrees(Math.atan2(vectorX, vectorY)) + 360) % 360;
+      if(!advance) { continue; }
+      int next = frame[i] + frameStep[i];
+      if(next >= FRAMES)
+      {
+        next = FRAMES - 1;
+        frameStep[i] = -1;
+      }
+      else if(next < 0)
+      {
+        next = 1;
+        frameStep[i] = 1;
+      }
+      frame[i] = (byte)next;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.level.house.WallField;
+
+/**
+ * ChaseSystem is how the Simulation moves Zombies: every Zombie within
+ * activationDistance of the Player (straight line) walks straight at the
+ * Player, one axis at a time, as far as the Walls let it (WallField.canMove()).
+ * A Zombie that gets within reach of the Player (Manhattan distance) doesn't
+ * move; hasReached() tells the Simulation to restart the level.
+ *
+ * Writes position; reads nothing of other slots.
+ *
+ * private:
+ * activationDistance, reach, clearance - as given to the constructor
+ * walls, playerX, playerY, distance - what aim() set up for the next pass
+ * reached - whether a Zombie reached the Player in the last pass
+ */
+public class ChaseSystem implements ZombieSystem
+{
+  private final double activationDistance, reach, clearance;
+  private WallField walls;
+  private double playerX, playerY, distance;
+  private volatile boolean reached = false;
+
+  /**
+   * @param activationDistance how near (in Tiles) the Player has to be for a Zombie to chase
+   * @param reach how near (Manhattan distance in Tiles) a Zombie has to get to the Player
+   * @param clearance how close (in Tiles) a Zombie may come to a Wall
+   */
+  public ChaseSystem(double activationDistance, double reach, double clearance)
+  {
+    this.activationDistance = activationDistance;
+    this.reach = reach;
+    this.clearance = clearance;
+  }
+
+  /**
+   * Sets up the next pass
+   * @param walls the level's WallField
+   * @param distance how far (in Tiles) a Zombie walks this step
+   */
+  public void aim(WallField walls, double playerX, double playerY, double distance)
+  {
+    this.walls = walls;
+    this.playerX = playerX;
+    this.playerY = playerY;
+    this.distance = distance;
+    this.reached = false;
+  }
+
+  /**
+   * @return true if a Zombie reached the Player in the last pass
+   */
+  public boolean hasReached() { return reached; }
+
+  @Override
+  public void run(ZombieStore store, int from, int to)
+  {
+    final double[] x = store.x, y = store.y;
+    double activationSquared = activationDistance * activationDistance;
+    for(int i = from; i < to; i++)
+    {
+      double positionX = x[i];
+      double positionY = y[i];
+      double distanceX = positionX - playerX;
+      double distanceY = positionY - playerY;
+      if(distanceX * distanceX + distanceY * distanceY >= activationSquared) { continue; }
+      double totalDistance = Math.abs(distanceX) + Math.abs(distanceY);
+      if(totalDistance < reach)
+      {
+        reached = true;
+        continue;
+      }
+      double desiredX = positionX - (distanceX / totalDistance * distance);
+      double desiredY = positionY - (distanceY / totalDistance * distance);
+      if(walls.canMove(positionX, positionY, desiredX, positionY, clearance))
+      {
+        positionX = desiredX;
+        x[i] = positionX;
+      }
+      if(walls.canMove(positionX, positionY, positionX, desiredY, clearance))
+      {
+        y[i] = desiredY;
+      }
+    }
+  }
+}
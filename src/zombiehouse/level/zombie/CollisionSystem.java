@@ -0,0 +1,51 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.level.house.WallField;
+
+/**
+ * CollisionSystem gets Zombies back out of Walls: one that has come closer
+ * than radius to a Wall slides back out along the Wall's normal (read off
+ * the level's WallField).
+ *
+ * Zombie.collide() also counts another Zombie within 2 Tiles, or standing
+ * on the Exit, as a collision, but all move() ever did about a collision was
+ * this push out of the Wall it overlaps (and clearing COLLIDED straight
+ * after), so the system doesn't look for other Zombies at all.
+ *
+ * Writes position and state; reads nothing of other slots. COLLIDED Zombies
+ * are left alone (whatever set it is in charge of them).
+ */
+public class CollisionSystem implements ZombieSystem
+{
+  private final WallField walls;
+  private final double radius;
+
+  /**
+   * @param walls the level's WallField
+   * @param radius how close (in Tiles) a Zombie may come to a Wall
+   */
+  public CollisionSystem(WallField walls, double radius)
+  {
+    this.walls = walls;
+    this.radius = radius;
+  }
+
+  @Override
+  public void run(ZombieStore store, int from, int to)
+  {
+    final double[] x = store.x, y = store.y;
+    final byte[] state = store.state;
+    for(int i = from; i < to; i++)
+    {
+      if((state[i] & ZombieStore.COLLIDED) != 0) { continue; }
+      double px = x[i];
+      double py = y[i];
+      double overlap = radius - walls.getDistance(px, py);
+      if(overlap > 0)
+      {
+        x[i] = px + walls.getNormalX(px, py) * overlap;
+        y[i] = py + walls.getNormalY(px, py) * overlap;
+      }
+    }
+  }
+}
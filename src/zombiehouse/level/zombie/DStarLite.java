@@ -0,0 +1,359 @@
+package zombiehouse.level.zombie;
+
+import java.util.concurrent.atomic.AtomicLong;
+import zombiehouse.common.LevelVar;
+import zombiehouse.level.house.Landmarks;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.util.IndexedMinHeap;
+
+/**
+ * DStarLite is an incremental replanner for one Zombie chasing a goal (the
+ * player) when both of them move a little between decisions. It is the
+ * Moving Target D* Lite form of D* Lite (Sun, Yeoh and Koenig).
+ *
+ * The search runs forward from the Zombie and keeps, for every Tile it has
+ * touched, the cost of reaching it (g), a one step lookahead of that (rhs)
+ * and the Tile it is reached from (parent), which together form a search
+ * tree rooted at the Zombie. Between plans:
+ *  - the goal moving only changes the heuristic, which is absorbed into the
+ *    key modifier km rather than re-keying the open list, and the search just
+ *    carries on from where it stopped until the new goal is settled
+ *  - the Zombie moving along its path keeps the part of the tree below its
+ *    new Tile as it is (every cost in it is off by the same amount, which
+ *    doesn't change any route) and only throws away the rest, re-opening the
+ *    thrown away Tiles that border what is kept
+ * So a replan after the player moved a Tile or two touches only the edge of
+ * the existing tree instead of searching again from scratch.
+ *
+ * The heuristic is AStar's: the Manhattan distance, raised to the landmark
+ * (ALT) bound when the level's Landmarks are built and LevelVar.ALT_HEURISTIC
+ * is on. Both are symmetric and obey the triangle inequality, which is what
+ * adding heuristic(old goal, new goal) to km relies on.
+ *
+ * A new level (a different NavGraph), the heuristic changing (Landmarks
+ * built or ALT_HEURISTIC switched), or the Zombie ending up off its tree,
+ * starts the search over.
+ *
+ * Every Zombie makes one for itself the first time it searches with
+ * LevelVar.pathMode set to PathMode.D_STAR_LITE.
+ *
+ * private:
+ * graph - the NavGraph the search state belongs to
+ * landmarks - the Landmarks the heuristic uses (null for Manhattan only)
+ * stamp, generation - which entries of g / rhs / parent belong to the current
+ *                     search (anything else reads as INFINITY / NO_TILE)
+ * g, rhs, parent - per Tile ID, as above
+ * touched, touchedCount - every ID stamped this generation (for deletion)
+ * keep - scratch marks for which touched IDs hang below the new start
+ * open - the open list, keyed by (min(g, rhs) + h + km, min(g, rhs))
+ * startId, goalId - where the Zombie and the goal were at the last plan
+ * km - the key modifier
+ * lastProcessed - Tiles taken off the open list by the last plan
+ */
+public class DStarLite
+{
+  private static final int INFINITY = Integer.MAX_VALUE / 4;
+  private static final byte UNKNOWN = 0, VISITING = 1, KEEP = 2, DROP = 3;
+
+  private static final AtomicLong totalProcessed = new AtomicLong();
+
+  private NavGraph graph;
+  private Landmarks landmarks;
+  private int[] stamp = new int[0];
+  private int generation = 0;
+  private int[] g = new int[0];
+  private int[] rhs = new int[0];
+  private int[] parent = new int[0];
+  private int[] touched = new int[0];
+  private int touchedCount = 0;
+  private byte[] keep = new byte[0];
+  private final IndexedMinHeap open = new IndexedMinHeap();
+  private int startId = NavGraph.NO_TILE;
+  private int goalId = NavGraph.NO_TILE;
+  private int km = 0;
+  private int lastProcessed = 0;
+
+  /**
+   * Brings the plan up to date for a Zombie at newStartId chasing newGoalId,
+   * reusing whatever the last plan found that is still valid
+   * @param graph the NavGraph of the house
+   * @param newStartId where the Zombie is now
+   * @param newGoalId where the goal is now
+   * @return true if the goal can be reached (read the route with buildPath)
+   */
+  public boolean plan(NavGraph graph, int newStartId, int newGoalId)
+  {
+    lastProcessed = 0;
+    if(newStartId == NavGraph.NO_TILE || newGoalId == NavGraph.NO_TILE) { return false; }
+    Landmarks bound = LevelVar.ALT_HEURISTIC ? LevelVar.landmarks : null;
+    if(bound != null && bound.getNavGraph() != graph) { bound = null; }
+    if(graph != this.graph || bound != landmarks || startId == NavGraph.NO_TILE || rhs(newStartId) >= INFINITY)
+    {
+      landmarks = bound;
+      initialize(graph, newStartId, newGoalId);
+    }
+    else
+    {
+      if(newGoalId != goalId)
+      {
+        km += heuristic(goalId, newGoalId);
+        goalId = newGoalId;
+      }
+      if(newStartId != startId)
+      {
+        startId = newStartId;
+        dropAllButSubtree();
+      }
+    }
+    computeShortestPath();
+    totalProcessed.addAndGet(lastProcessed);
+    return rhs(goalId) < INFINITY;
+  }
+
+  private void initialize(NavGraph graph, int newStartId, int newGoalId)
+  {
+    this.graph = graph;
+    if(stamp.length < graph.size())
+    {
+      stamp = new int[graph.size()];
+      g = new int[graph.size()];
+      rhs = new int[graph.size()];
+      parent = new int[graph.size()];
+      touched = new int[graph.size()];
+      keep = new byte[graph.size()];
+      generation = 0;
+    }
+    generation++;
+    touchedCount = 0;
+    open.clear(graph.size());
+    km = 0;
+    startId = newStartId;
+    goalId = newGoalId;
+    touch(startId);
+    rhs[startId] = 0;
+    open.add(startId, key(startId));
+  }
+
+  /**
+   * The Zombie moved to startId: keep the part of the tree below it and
+   * delete everything else, re-opening deleted Tiles next to the kept part
+   */
+  private void dropAllButSubtree()
+  {
+    parent[startId] = NavGraph.NO_TILE;
+    for(int i = 0; i < touchedCount; i++) { keep[touched[i]] = UNKNOWN; }
+    keep[startId] = KEEP;
+    for(int i = 0; i < touchedCount; i++) { classify(touched[i]); }
+
+    int kept = 0;
+    for(int i = 0; i < touchedCount; i++)
+    {
+      int id = touched[i];
+      if(keep[id] == KEEP) { continue; }
+      g[id] = INFINITY;
+      rhs[id] = INFINITY;
+      parent[id] = NavGraph.NO_TILE;
+      open.remove(id);
+    }
+    for(int i = 0; i < touchedCount; i++)
+    {
+      int id = touched[i];
+      if(keep[id] == KEEP)
+      {
+        touched[kept++] = id;
+        continue;
+      }
+      for(int e = graph.neighborStart(id); e < graph.neighborEnd(id); e++)
+      {
+        int from = graph.neighbor(e);
+        if(g(from) < INFINITY && g(from) + 1 < rhs[id])
+        {
+          rhs[id] = g(from) + 1;
+          parent[id] = from;
+        }
+      }
+      if(rhs[id] < INFINITY)
+      {
+        touched[kept++] = id;
+        open.add(id, key(id));
+      }
+      else
+      {
+        stamp[id] = 0;
+      }
+    }
+    touchedCount = kept;
+  }
+
+  /**
+   * Marks id KEEP if following parents from it reaches the start, DROP if not
+   */
+  private void classify(int id)
+  {
+    int walk = id;
+    while(keep[walk] == UNKNOWN)
+    {
+      keep[walk] = VISITING;
+      int up = parent[walk];
+      if(up == NavGraph.NO_TILE || stamp[up] != generation) { break; }
+      walk = up;
+    }
+    byte result = (keep[walk] == KEEP) ? KEEP : DROP;
+    for(walk = id; keep[walk] == VISITING; walk = parent[walk])
+    {
+      keep[walk] = result;
+      if(parent[walk] == NavGraph.NO_TILE || stamp[parent[walk]] != generation) { break; }
+    }
+  }
+
+  private void computeShortestPath()
+  {
+    while(!open.isEmpty() && (open.peekPriority() < key(goalId) || rhs(goalId) > g(goalId)))
+    {
+      int u = open.peek();
+      long oldKey = open.peekPriority();
+      long newKey = key(u);
+      lastProcessed++;
+      if(oldKey < newKey)
+      {
+        open.update(u, newKey);
+      }
+      else if(g(u) > rhs(u))
+      {
+        g[u] = rhs[u];
+        open.remove(u);
+        for(int e = graph.neighborStart(u); e < graph.neighborEnd(u); e++)
+        {
+          int s = graph.neighbor(e);
+          if(s != startId && g[u] + 1 < rhs(s))
+          {
+            touch(s);
+            rhs[s] = g[u] + 1;
+            parent[s] = u;
+            updateVertex(s);
+          }
+        }
+      }
+      else
+      {
+        g[u] = INFINITY;
+        if(u != startId) { recomputeRhs(u); }
+        updateVertex(u);
+        for(int e = graph.neighborStart(u); e < graph.neighborEnd(u); e++)
+        {
+          int s = graph.neighbor(e);
+          if(s != startId && stamp[s] == generation && parent[s] == u)
+          {
+            recomputeRhs(s);
+            updateVertex(s);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Sets rhs and parent of id from the best of its neighbors
+   */
+  private void recomputeRhs(int id)
+  {
+    int best = INFINITY;
+    int bestFrom = NavGraph.NO_TILE;
+    for(int e = graph.neighborStart(id); e < graph.neighborEnd(id); e++)
+    {
+      int from = graph.neighbor(e);
+      int value = g(from);
+      if(value < INFINITY && value + 1 < best)
+      {
+        best = value + 1;
+        bestFrom = from;
+      }
+    }
+    rhs[id] = best;
+    parent[id] = bestFrom;
+  }
+
+  /**
+   * Puts id on the open list if it is inconsistent, takes it off if not
+   */
+  private void updateVertex(int id)
+  {
+    if(g(id) != rhs(id))
+    {
+      if(open.contains(id)) { open.update(id, key(id)); }
+      else                  { open.add(id, key(id)); }
+    }
+    else
+    {
+      open.remove(id);
+    }
+  }
+
+  private long key(int id)
+  {
+    int min = Math.min(g(id), rhs(id));
+    int first = (min >= INFINITY) ? INFINITY : min + heuristic(id, goalId) + km;
+    return ((long)first << 32) | min;
+  }
+
+  /**
+   * Lower bound of the steps between two Tiles: the Manhattan distance,
+   * raised to the landmark bound if there is one
+   */
+  private int heuristic(int fromId, int toId)
+  {
+    int manhattan = Math.abs(graph.getX(fromId) - graph.getX(toId)) + Math.abs(graph.getY(fromId) - graph.getY(toId));
+    if(landmarks == null) { return manhattan; }
+    return Math.max(manhattan, landmarks.lowerBound(fromId, toId));
+  }
+
+  private int g(int id) { return stamp[id] == generation ? g[id] : INFINITY; }
+
+  private int rhs(int id) { return stamp[id] == generation ? rhs[id] : INFINITY; }
+
+  private void touch(int id)
+  {
+    if(stamp[id] == generation) { return; }
+    stamp[id] = generation;
+    g[id] = INFINITY;
+    rhs[id] = INFINITY;
+    parent[id] = NavGraph.NO_TILE;
+    touched[touchedCount++] = id;
+  }
+
+  /**
+   * Fills path with the Tiles from the Zombie's Tile to the goal, read back
+   * from the goal along the search tree
+   * @param path the path to fill (left empty if the tree doesn't lead back
+   *             to the Zombie)
+   */
+  public void buildPath(IntPath path)
+  {
+    path.clear(graph);
+    int length = 0;
+    int id = goalId;
+    for(; id != NavGraph.NO_TILE && length <= graph.size(); id = parent(id))
+    {
+      length++;
+      if(id == startId) { break; }
+    }
+    if(id != startId) { return; }
+    path.setLength(length);
+    for(id = goalId; length > 0; id = parent(id))
+    {
+      path.set(--length, id);
+    }
+  }
+
+  private int parent(int id) { return stamp[id] == generation ? parent[id] : NavGraph.NO_TILE; }
+
+  /**
+   * @return the number of Tiles the last plan took off the open list
+   */
+  public int getLastProcessed() { return lastProcessed; }
+
+  /**
+   * @return the number of Tiles taken off the open list by every plan so far
+   */
+  public static long getTotalProcessed() { return totalProcessed.get(); }
+}
@@ -0,0 +1,192 @@
+package zombiehouse.level.zombie;
+
+import java.util.Arrays;
+import zombiehouse.common.Player;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.level.house.Tile;
+
+/**
+ * FlowField is a Dijkstra map of the house rooted at the Player's Tile.
+ *
+ * Every Zombie that is hunting the Player is heading for the same Tile, so
+ * instead of each of them running its own A* the distances from the Player
+ * are computed once (a single breadth first pass over the NavGraph) and
+ * each Zombie just steps to whichever neighbor is closer to the Player.
+ *
+ * The field is only recomputed when the Player moves to a new Tile or the
+ * house is replaced (next level / restart), so a decision tick costs at most
+ * one grid traversal plus a constant amount of work per Zombie.
+ *
+ * A field can also be filled only a bounded number of steps out, which is
+ * how scent is handled: one shallow fill from the Player replaces a separate
+ * BFS out of every Zombie, and smelling becomes a single array lookup. Both
+ * searches only walk floor Tiles (doors are floor; Walls and the Exit never
+ * are) and steps are symmetric, so the distances are the ones each Zombie's
+ * own BFS found; the one difference, a Zombie standing on a Tile that isn't
+ * floor, is handled by getDistanceFrom().
+ *
+ * private:
+ * fieldGraph - the NavGraph the current distances were computed over
+ * rootId - the ID of the Tile the current distances were computed from
+ * maxDepth - how many steps out from the root the fill went (UNREACHABLE if
+ *            it covered the whole house)
+ * distance - steps from the root for every Tile, indexed by NavGraph ID
+ *            (UNREACHABLE for walls and Tiles that are cut off)
+ * queue - reusable BFS queue of Tile indices
+ */
+public class FlowField
+{
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private NavGraph fieldGraph;
+  private int rootId = NavGraph.NO_TILE;
+  private int maxDepth;
+  private int[] distance = new int[0];
+  private int[] queue = new int[0];
+
+  /**
+   * Makes sure the field is rooted at the Player's current Tile in graph,
+   * rebuilding it only if the Player changed Tile or the level was replaced
+   * @param graph the NavGraph of the house the Zombies are walking on
+   */
+  public synchronized void update(NavGraph graph)
+  {
+    update(graph, UNREACHABLE);
+  }
+  
+  /**
+   * Same as update(graph), but the flood fill stops after depth steps so only
+   * the Tiles within depth of the Player get a distance (the scent field).
+   * A field already built at least as deep is reused.
+   * @param graph the NavGraph of the house the Zombies are walking on
+   * @param depth the number of steps out from the Player to fill
+   */
+  public synchronized void update(NavGraph graph, int depth)
+  {
+    update(graph, graph.getId((int)Player.xPosition, (int)Player.yPosition), depth);
+  }
+
+  /**
+   * Same as update(graph, depth), rooted at a given Tile instead of where
+   * the Player is right now (e.g. where a WorldSnapshot saw the Player)
+   * @param graph the NavGraph of the house the Zombies are walking on
+   * @param root the ID of the Tile to fill out from
+   * @param depth the number of steps out from root to fill
+   */
+  public synchronized void update(NavGraph graph, int root, int depth)
+  {
+    if(graph == fieldGraph && root == rootId && depth <= maxDepth) { return; }
+    build(graph, root, depth);
+  }
+
+  /**
+   * Breadth first flood fill outward from the root Tile
+   */
+  private void build(NavGraph graph, int root, int depth)
+  {
+    fieldGraph = graph;
+    rootId = root;
+    maxDepth = depth;
+    if(distance.length != graph.size())
+    {
+      distance = new int[graph.size()];
+      queue = new int[graph.size()];
+    }
+    Arrays.fill(distance, UNREACHABLE);
+    if(root == NavGraph.NO_TILE) { return; }
+
+    int head = 0;
+    int tail = 0;
+    distance[root] = 0;
+    queue[tail++] = root;
+    while(head < tail)
+    {
+      int cur = queue[head++];
+      if(distance[cur] >= maxDepth) { continue; }
+      int nextDist = distance[cur] + 1;
+      for(int e = graph.neighborStart(cur); e < graph.neighborEnd(cur); e++)
+      {
+        int next = graph.neighbor(e);
+        if(distance[next] != UNREACHABLE) { continue; }
+        distance[next] = nextDist;
+        queue[tail++] = next;
+      }
+    }
+  }
+
+  /**
+   * @param tile a Tile in the house the field was last built over
+   * @return the number of steps from tile to the Player, or UNREACHABLE
+   */
+  public synchronized int getDistance(Tile tile)
+  {
+    if(fieldGraph == null) { return UNREACHABLE; }
+    int id = fieldGraph.getId(tile);
+    if(id == NavGraph.NO_TILE) { return UNREACHABLE; }
+    return distance[id];
+  }
+
+  /**
+   * getDistance() as the per-Zombie BFS measured it, starting from tile even
+   * if it isn't floor (and so isn't in the field): such a Tile is one step
+   * further than the nearest floor Tile next to it
+   * @param tile a Tile in the house the field was last built over
+   * @return the number of steps from tile to the Player, or UNREACHABLE
+   */
+  public synchronized int getDistanceFrom(Tile tile)
+  {
+    int own = getDistance(tile);
+    if(own != UNREACHABLE || tile.isFloor()) { return own; }
+    int best = Math.min(Math.min(floorDistance(tile.xCor + 1, tile.yCor), floorDistance(tile.xCor - 1, tile.yCor)),
+                        Math.min(floorDistance(tile.xCor, tile.yCor + 1), floorDistance(tile.xCor, tile.yCor - 1)));
+    return (best == UNREACHABLE) ? UNREACHABLE : best + 1;
+  }
+
+  /**
+   * getDistanceFrom() for the Tile at [x][y] (UNREACHABLE off the house),
+   * without taking the lock: only for a field that one thread updates and
+   * that is read between its updates, like the SmellSystem's, which is read
+   * by several threads at once during a pass
+   */
+  int readDistanceFrom(int x, int y)
+  {
+    if(fieldGraph == null) { return UNREACHABLE; }
+    int id = fieldGraph.getId(x, y);
+    if(id == NavGraph.NO_TILE) { return UNREACHABLE; }
+    if(distance[id] != UNREACHABLE || fieldGraph.isWalkable(id)) { return distance[id]; }
+    int best = Math.min(Math.min(floorDistance(x + 1, y), floorDistance(x - 1, y)),
+                        Math.min(floorDistance(x, y + 1), floorDistance(x, y - 1)));
+    return (best == UNREACHABLE) ? UNREACHABLE : best + 1;
+  }
+
+  private int floorDistance(int x, int y)
+  {
+    int id = fieldGraph.getId(x, y);
+    return (id == NavGraph.NO_TILE) ? UNREACHABLE : distance[id];
+  }
+
+  /**
+   * Reads the next step toward the Player from the field
+   * @param from the Tile a Zombie is currently in
+   * @return the neighboring Tile one step closer to the Player, or null if
+   *         from is the Player's Tile or the Player can't be reached from it
+   */
+  public synchronized Tile nextStep(Tile from)
+  {
+    int bestDist = getDistance(from);
+    if(bestDist == UNREACHABLE || bestDist == 0) { return null; }
+    int id = fieldGraph.getId(from);
+    int best = NavGraph.NO_TILE;
+    for(int e = fieldGraph.neighborStart(id); e < fieldGraph.neighborEnd(id); e++)
+    {
+      int next = fieldGraph.neighbor(e);
+      if(distance[next] < bestDist)
+      {
+        bestDist = distance[next];
+        best = next;
+      }
+    }
+    if(best == NavGraph.NO_TILE) { return null; }
+    return fieldGraph.getTile(best);
+  }
+}
@@ -0,0 +1,110 @@
+package zombiehouse.level.zombie;
+
+import java.util.Arrays;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.level.house.Tile;
+
+/**
+ * IntPath is a path as the NavGraph IDs of its Tiles, packed in an int array
+ * that is reused from one path to the next.
+ *
+ * Searches know how long a route is before they write it out, so they size
+ * the path with setLength() and fill it back to front from the goal instead
+ * of collecting it and reversing it. Walking the path drops Tiles off the
+ * front with advance(), which only moves the head index.
+ *
+ * Nothing is allocated unless a path is longer than any before it.
+ *
+ * private:
+ * graph - the NavGraph the IDs are from (to turn them back into Tiles)
+ * ids - the IDs; the path is ids[head .. end)
+ */
+public class IntPath
+{
+  private NavGraph graph;
+  private int[] ids = new int[16];
+  private int head = 0;
+  private int end = 0;
+
+  /**
+   * Empties the path and sets the NavGraph the next IDs come from
+   */
+  public void clear(NavGraph graph)
+  {
+    this.graph = graph;
+    head = 0;
+    end = 0;
+  }
+
+  public void clear()
+  {
+    head = 0;
+    end = 0;
+  }
+
+  public NavGraph getGraph() { return graph; }
+
+  public int size() { return end - head; }
+
+  public boolean isEmpty() { return end == head; }
+
+  /**
+   * @return the ID of the i'th Tile still on the path
+   */
+  public int get(int i) { return ids[head + i]; }
+
+  /**
+   * @return the i'th Tile still on the path
+   */
+  public Tile getTile(int i) { return graph.getTile(ids[head + i]); }
+
+  /**
+   * @return the ID of the last Tile of the path
+   */
+  public int last() { return ids[end - 1]; }
+
+  /**
+   * Drops the first Tile of the path
+   */
+  public void advance() { head++; }
+
+  /**
+   * Adds an ID to the end of the path
+   */
+  public void add(int id)
+  {
+    if(end == ids.length) { ids = Arrays.copyOf(ids, ids.length * 2); }
+    ids[end++] = id;
+  }
+
+  /**
+   * Makes the path length IDs long (all to be written with set())
+   */
+  public void setLength(int length)
+  {
+    if(ids.length < length) { ids = new int[Math.max(length, ids.length * 2)]; }
+    head = 0;
+    end = length;
+  }
+
+  public void set(int i, int id) { ids[head + i] = id; }
+
+  /**
+   * Keeps only the first size IDs of the path
+   */
+  public void truncate(int size) { end = head + size; }
+
+  /**
+   * Copies count IDs from source, starting at from, in as the whole path
+   */
+  public void setAll(int[] source, int from, int count)
+  {
+    setLength(count);
+    System.arraycopy(source, from, ids, 0, count);
+  }
+
+  /**
+   * @return a copy of the IDs still on the path
+   */
+  public int[] toArray() { return Arrays.copyOfRange(ids, head, end); }
+}
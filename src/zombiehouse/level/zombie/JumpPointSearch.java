@@ -0,0 +1,235 @@
+package zombiehouse.level.zombie;
+
+import java.util.concurrent.atomic.AtomicLong;
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.util.IndexedMinHeap;
+
+/**
+ * JumpPointSearch is A* that only puts "jump points" on the open list.
+ *
+ * The full size Rooms are open rectangles, and plain A* adds every Tile inside
+ * them to the open list even though all the equally short routes across are
+ * interchangeable. Here a search instead runs in a straight line from each
+ * expanded Tile until it reaches something that matters (the goal, or a Tile
+ * where a wall forces a turn) and only that Tile is added.
+ *
+ * This is the 4-way version of the search: a line running east or west stops
+ * wherever a north or south line from it would find a jump point, and a line
+ * running north or south only turns where a wall just behind it forces it to.
+ * Every shortest 4-way route has an equally short one made of these turns,
+ * so the routes found are still optimal.
+ *
+ * Each instance owns its SearchWorkspace and heap and must only run one
+ * search at a time; Zombies share the one pooled per thread (forThread()).
+ *
+ * private:
+ * graph, goalX, goalY - the search in progress
+ * lastExpanded - jump points expanded by the last search
+ * lastScanned - Tiles stepped over while jumping in the last search
+ */
+public class JumpPointSearch
+{
+  private static final int TIE_BREAK_SCALE = 1 << 12;
+
+  private static final AtomicLong totalExpanded = new AtomicLong();
+  private static final AtomicLong totalScanned = new AtomicLong();
+  private static final ThreadLocal<JumpPointSearch> perThread = new ThreadLocal<JumpPointSearch>()
+  {
+    @Override
+    protected JumpPointSearch initialValue() { return new JumpPointSearch(); }
+  };
+
+  private final SearchWorkspace workspace = new SearchWorkspace();
+  private final IndexedMinHeap open = new IndexedMinHeap();
+  private NavGraph graph;
+  private int goalX, goalY;
+  private int lastExpanded = 0;
+  private int lastScanned = 0;
+
+  /**
+   * @return the JumpPointSearch pooled for the calling thread
+   */
+  public static JumpPointSearch forThread() { return perThread.get(); }
+
+  /**
+   * Searches graph for the cheapest route from startId to goalId
+   * @param graph the NavGraph to search
+   * @param startId the ID to start from
+   * @param goalId the ID to find
+   * @return true if goalId was reached (the route can then be read with buildPath)
+   */
+  public boolean search(NavGraph graph, int startId, int goalId)
+  {
+    lastExpanded = 0;
+    lastScanned = 0;
+    if(startId == NavGraph.NO_TILE || goalId == NavGraph.NO_TILE) { return false; }
+    this.graph = graph;
+    goalX = graph.getX(goalId);
+    goalY = graph.getY(goalId);
+
+    workspace.begin(graph.size());
+    open.clear(graph.size());
+    workspace.visit(startId, NavGraph.NO_TILE, 0);
+    open.add(startId, priority(0, heuristic(startId)));
+    boolean found = false;
+    while(!open.isEmpty())
+    {
+      int currentId = open.poll();
+      if(currentId == goalId)
+      {
+        found = true;
+        break;
+      }
+      workspace.close(currentId);
+      lastExpanded++;
+      int x = graph.getX(currentId);
+      int y = graph.getY(currentId);
+      int fromId = workspace.getAncestor(currentId);
+      if(fromId == NavGraph.NO_TILE)
+      {
+        jumpFrom(currentId, x, y, 1, 0);
+        jumpFrom(currentId, x, y, -1, 0);
+        jumpFrom(currentId, x, y, 0, 1);
+        jumpFrom(currentId, x, y, 0, -1);
+      }
+      else
+      {
+        int dX = Integer.signum(x - graph.getX(fromId));
+        int dY = Integer.signum(y - graph.getY(fromId));
+        if(dX != 0)
+        {
+          jumpFrom(currentId, x, y, dX, 0);
+          jumpFrom(currentId, x, y, 0, 1);
+          jumpFrom(currentId, x, y, 0, -1);
+        }
+        else
+        {
+          jumpFrom(currentId, x, y, 0, dY);
+          if(walkable(x + 1, y) && !walkable(x + 1, y - dY)) { jumpFrom(currentId, x, y, 1, 0); }
+          if(walkable(x - 1, y) && !walkable(x - 1, y - dY)) { jumpFrom(currentId, x, y, -1, 0); }
+        }
+      }
+    }
+    totalExpanded.addAndGet(lastExpanded);
+    totalScanned.addAndGet(lastScanned);
+    return found;
+  }
+
+  /**
+   * Jumps from currentId in one direction and adds (or improves) the jump
+   * point found on the open list
+   */
+  private void jumpFrom(int currentId, int x, int y, int dX, int dY)
+  {
+    int jumpId = jump(x, y, dX, dY);
+    if(jumpId == NavGraph.NO_TILE || workspace.isClosed(jumpId)) { return; }
+    int cost = workspace.getCost(currentId) + Math.abs(graph.getX(jumpId) - x) + Math.abs(graph.getY(jumpId) - y);
+    if(workspace.isVisited(jumpId))
+    {
+      if(cost >= workspace.getCost(jumpId)) { return; }
+      workspace.visit(jumpId, currentId, cost);
+      open.decreaseKey(jumpId, priority(cost, heuristic(jumpId)));
+    }
+    else
+    {
+      workspace.visit(jumpId, currentId, cost);
+      open.add(jumpId, priority(cost, heuristic(jumpId)));
+    }
+  }
+
+  /**
+   * Steps from [x][y] in direction (dX, dY) until a jump point or a wall
+   * @return the ID of the jump point, or NavGraph.NO_TILE if a wall came first
+   */
+  private int jump(int x, int y, int dX, int dY)
+  {
+    while(true)
+    {
+      x += dX;
+      y += dY;
+      if(!walkable(x, y)) { return NavGraph.NO_TILE; }
+      lastScanned++;
+      if(x == goalX && y == goalY) { return graph.getId(x, y); }
+      if(dX != 0)
+      {
+        if(jump(x, y, 0, 1) != NavGraph.NO_TILE || jump(x, y, 0, -1) != NavGraph.NO_TILE)
+        {
+          return graph.getId(x, y);
+        }
+      }
+      else
+      {
+        if(walkable(x + 1, y) && !walkable(x + 1, y - dY)) { return graph.getId(x, y); }
+        if(walkable(x - 1, y) && !walkable(x - 1, y - dY)) { return graph.getId(x, y); }
+      }
+    }
+  }
+
+  private boolean walkable(int x, int y)
+  {
+    int id = graph.getId(x, y);
+    return id != NavGraph.NO_TILE && graph.isWalkable(id);
+  }
+
+  private int heuristic(int id)
+  {
+    return Math.abs(graph.getX(id) - goalX) + Math.abs(graph.getY(id) - goalY);
+  }
+
+  private int priority(int g, int h)
+  {
+    return (g + h) * TIE_BREAK_SCALE + Math.min(h, TIE_BREAK_SCALE - 1);
+  }
+
+  /**
+   * Fills path with every Tile (not just the jump points) of the route the
+   * last successful search found, from its start to goalId (both included)
+   * @param graph the NavGraph that was searched
+   * @param goalId the goal that was found
+   * @param path the path to fill (anything in it is replaced)
+   */
+  public void buildPath(NavGraph graph, int goalId, IntPath path)
+  {
+    path.clear(graph);
+    // the cost of a jump point is the number of steps to it
+    int length = workspace.getCost(goalId) + 1;
+    path.setLength(length);
+    int id = goalId;
+    path.set(--length, id);
+    for(int fromId = workspace.getAncestor(id); fromId != NavGraph.NO_TILE; fromId = workspace.getAncestor(fromId))
+    {
+      // the Tiles between two jump points are always a straight line
+      int x = graph.getX(id);
+      int y = graph.getY(id);
+      int dX = Integer.signum(graph.getX(fromId) - x);
+      int dY = Integer.signum(graph.getY(fromId) - y);
+      while(graph.getId(x, y) != fromId)
+      {
+        x += dX;
+        y += dY;
+        path.set(--length, graph.getId(x, y));
+      }
+      id = fromId;
+    }
+  }
+
+  /**
+   * @return the number of jump points the last search expanded
+   */
+  public int getLastExpanded() { return lastExpanded; }
+
+  /**
+   * @return the number of Tiles the last search stepped over while jumping
+   */
+  public int getLastScanned() { return lastScanned; }
+
+  /**
+   * @return the number of jump points expanded by every search so far
+   */
+  public static long getTotalExpanded() { return totalExpanded.get(); }
+
+  /**
+   * @return the number of Tiles stepped over by every search so far
+   */
+  public static long getTotalScanned() { return totalScanned.get(); }
+}
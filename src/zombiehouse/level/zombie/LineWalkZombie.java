@@ -1,7 +1,6 @@
 package zombiehouse.level.zombie;
 
 import zombiehouse.level.house.*;
-import zombiehouse.common.*;
 
 /**
  * The LineWalkZombie class contains the behavior for a
@@ -20,7 +19,7 @@ public class LineWalkZombie extends Zombie
    */
   public LineWalkZombie(double heading, double positionX, double positionY,
       Tile curTile, int id) {
-    super(heading, positionX, positionY, curTile, id);
+    super(heading, positionX, positionY, curTile, id, ZombieKind.LINE_WALK);
   }
 
   /**
@@ -30,9 +29,9 @@ public class LineWalkZombie extends Zombie
   @Override
   public void makeDecision()
   {
-    if (super.scentDetection(super.getZombieSmell(), LevelVar.house)) {
+    if (super.scentDetection(super.getZombieSmell(), getSeenHouse())) {
       super.setSmell(true);
-      super.calcPath(LevelVar.house);
+      super.calcPath(getSeenHouse());
       this.setCollided(false);
     } else {
       super.setSmell(false);
@@ -49,10 +48,10 @@ public class LineWalkZombie extends Zombie
         }
       }
 
-      else if(super.scentDetection(super.getZombieSmell(), LevelVar.house) || this.getSmell())
+      else if(super.scentDetection(super.getZombieSmell(), getSeenHouse()) || this.getSmell())
 	  {
 		super.setSmell(true);
-		super.calcPath(LevelVar.house);
+		super.calcPath(getSeenHouse());
 	  }
 	  else
 	  {
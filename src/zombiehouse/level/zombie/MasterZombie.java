@@ -2,11 +2,12 @@ package zombiehouse.level.zombie;
 
 
 import zombiehouse.level.house.*;
-import zombiehouse.common.*;
 
 /**
  * MasterZombie class contains the behavior for a
  * MasterZombie
+ * Whatever it decides about smelling the Player is passed on to every
+ * Zombie of the level by the AIScheduler (see AIScheduler)
  * @author Stephen Sagartz
  * @since 2016-03-05
  */
@@ -21,7 +22,7 @@ public class MasterZombie extends Zombie
    */
   public MasterZombie(double heading, double positionX, double positionY, Tile curTile, int id)
   {
-    super(heading, positionX, positionY, curTile, id);
+    super(heading, positionX, positionY, curTile, id, ZombieKind.MASTER);
   }
 
     /**
@@ -31,16 +32,14 @@ public class MasterZombie extends Zombie
   @Override
   public void makeDecision()
   {
-    if(super.scentDetection(super.getZombieSmell(), LevelVar.house))
+    if(super.scentDetection(super.getZombieSmell(), getSeenHouse()))
     {
       this.setCollided(false);
       super.setSmell(true);
-      super.calcPath(LevelVar.house);
-      for(Zombie z : LevelVar.zombieCollection) z.setSmell(true);
+      super.calcPath(getSeenHouse());
     }
     else
     {
-      for(Zombie z : LevelVar.zombieCollection) z.setSmell(false);
       super.setSmell(false);
       if(super.getCollide())
       {
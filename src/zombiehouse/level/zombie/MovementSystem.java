@@ -0,0 +1,30 @@
+package zombiehouse.level.zombie;
+
+/**
+ * MovementSystem moves Zombies along their headings (ZombieStore.advance()):
+ * every one that isn't COLLIDED goes speed * seconds Tiles, as long as it is
+ * inside (0, maxX] x (0, maxY]. Sets MOVED on the ones that moved.
+ *
+ * Writes position and state; reads heading and speed.
+ */
+public class MovementSystem implements ZombieSystem
+{
+  private final double seconds, maxX, maxY;
+
+  /**
+   * @param seconds how long to move them for
+   * @param maxX, maxY the size of the house
+   */
+  public MovementSystem(double seconds, double maxX, double maxY)
+  {
+    this.seconds = seconds;
+    this.maxX = maxX;
+    this.maxY = maxY;
+  }
+
+  @Override
+  public void run(ZombieStore store, int from, int to)
+  {
+    store.advance(from, to, seconds, maxX, maxY);
+  }
+}
@@ -0,0 +1,233 @@
+package zombiehouse.level.zombie;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import zombiehouse.level.house.NavGraph;
+
+/**
+ * PathCache is a bounded, least recently used cache of shortest paths keyed
+ * by (start Tile ID, goal Tile ID), shared by all the Zombies of a level.
+ *
+ * Zombies in the same Room chasing the same Tile tend to ask for the same
+ * paths, or for paths that are the tail end of one already found: any part of
+ * a shortest path is itself a shortest path, so a path from A to the goal also
+ * answers a search from any Tile on it to the same goal. Those suffix hits are
+ * found through an index of the cached paths by goal.
+ *
+ * Entries are only valid for the NavGraph they were found on. The cache
+ * remembers that NavGraph and empties itself the first time it is used with a
+ * different one, which happens after Level.nextLevel / restartLevel build the
+ * new house, so nothing has to remember to clear it.
+ *
+ * Zombies use it while LevelVar.PATH_CACHE is on and LevelVar.pathMode is one
+ * that finds whole paths (ASTAR, ASTAR_ASYNC through the PathService, or
+ * JUMP_POINT). Only complete shortest paths may be put in (not the partial
+ * routes of PathMode.HIERARCHICAL). All methods are synchronized so the cache can be
+ * used from the AIScheduler threads and the FX thread.
+ *
+ * private:
+ * capacity - the most paths kept at once
+ * graph - the NavGraph the cached paths belong to
+ * paths - (start << 32 | goal) to path IDs, in least recently used order
+ * byGoal - every cached path by its goal, for suffix lookups
+ * hits, suffixHits, misses, invalidations - statistics for sizing the cache
+ */
+public class PathCache
+{
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private final int capacity;
+  private NavGraph graph;
+  private final LruMap paths;
+  private final HashMap<Integer, ArrayList<int[]>> byGoal = new HashMap<>();
+  private long hits = 0;
+  private long suffixHits = 0;
+  private long misses = 0;
+  private long invalidations = 0;
+
+  public PathCache()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the most paths to keep at once
+   */
+  public PathCache(int capacity)
+  {
+    this.capacity = capacity;
+    this.paths = new LruMap(this);
+  }
+
+  /**
+   * The paths in least recently used order; drops the eldest (and takes it
+   * out of the goal index) once the cache holds more than its capacity
+   */
+  private static class LruMap extends LinkedHashMap<Long, int[]>
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final transient PathCache cache;
+
+    LruMap(PathCache cache)
+    {
+      super(16, 0.75f, true);
+      this.cache = cache;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest)
+    {
+      if(size() <= cache.capacity) { return false; }
+      cache.forget(eldest.getValue());
+      return true;
+    }
+  }
+
+  /**
+   * Fills path with a cached shortest path from startId to goalId, either
+   * one cached for exactly that pair or the tail of a longer one
+   * @param graph the NavGraph of the house
+   * @param startId the ID the path starts at
+   * @param goalId the ID the path ends at
+   * @param path the path to fill (it is cleared first, and left empty on a miss)
+   * @return true on a hit
+   */
+  public synchronized boolean fill(NavGraph graph, int startId, int goalId, IntPath path)
+  {
+    path.clear(graph);
+    checkGraph(graph);
+    int[] ids = paths.get(key(startId, goalId));
+    int from = 0;
+    if(ids != null)
+    {
+      hits++;
+    }
+    else
+    {
+      ids = findSuffix(startId, goalId);
+      if(ids == null)
+      {
+        misses++;
+        return false;
+      }
+      suffixHits++;
+      paths.get(key(ids[0], goalId)); // counts as a use of the longer path
+      while(ids[from] != startId) { from++; }
+    }
+    path.setAll(ids, from, ids.length - from);
+    return true;
+  }
+
+  /**
+   * Caches a shortest path (its first Tile is the start, its last the goal)
+   * @param graph the NavGraph the path was found on
+   * @param path the path to cache
+   */
+  public synchronized void put(NavGraph graph, IntPath path)
+  {
+    if(path.size() < 2 || capacity <= 0) { return; }
+    checkGraph(graph);
+    int[] ids = path.toArray();
+    int goalId = ids[ids.length - 1];
+    int[] old = paths.put(key(ids[0], goalId), ids);
+    if(old != null) { forget(old); }
+    ArrayList<int[]> sameGoal = byGoal.get(goalId);
+    if(sameGoal == null)
+    {
+      sameGoal = new ArrayList<>();
+      byGoal.put(goalId, sameGoal);
+    }
+    sameGoal.add(ids);
+  }
+
+  /**
+   * Empties the cache (the statistics are kept)
+   */
+  public synchronized void clear()
+  {
+    paths.clear();
+    byGoal.clear();
+  }
+
+  private void checkGraph(NavGraph graph)
+  {
+    if(graph == this.graph) { return; }
+    if(this.graph != null) { invalidations++; }
+    clear();
+    this.graph = graph;
+  }
+
+  /**
+   * @return a cached path to goalId that passes through startId, or null
+   */
+  private int[] findSuffix(int startId, int goalId)
+  {
+    ArrayList<int[]> sameGoal = byGoal.get(goalId);
+    if(sameGoal == null) { return null; }
+    for(int[] ids : sameGoal)
+    {
+      for(int i = 1; i < ids.length; i++)
+      {
+        if(ids[i] == startId) { return ids; }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Takes an evicted or replaced path out of the goal index
+   */
+  private void forget(int[] ids)
+  {
+    int goalId = ids[ids.length - 1];
+    ArrayList<int[]> sameGoal = byGoal.get(goalId);
+    if(sameGoal == null) { return; }
+    for(int i = 0; i < sameGoal.size(); i++)
+    {
+      if(sameGoal.get(i) == ids)
+      {
+        sameGoal.remove(i);
+        break;
+      }
+    }
+    if(sameGoal.isEmpty()) { byGoal.remove(goalId); }
+  }
+
+  private static long key(int startId, int goalId)
+  {
+    return ((long)startId << 32) | (goalId & 0xffffffffL);
+  }
+
+  public synchronized int size() { return paths.size(); }
+
+  public int getCapacity() { return capacity; }
+
+  /**
+   * @return lookups answered by a path cached for exactly that start and goal
+   */
+  public synchronized long getHits() { return hits; }
+
+  /**
+   * @return lookups answered by the tail of a longer cached path
+   */
+  public synchronized long getSuffixHits() { return suffixHits; }
+
+  public synchronized long getMisses() { return misses; }
+
+  /**
+   * @return how many times the cache was emptied for a new NavGraph
+   */
+  public synchronized long getInvalidations() { return invalidations; }
+
+  /**
+   * @return the fraction of lookups that were hits of either kind
+   */
+  public synchronized double getHitRate()
+  {
+    long lookups = hits + suffixHits + misses;
+    return (lookups == 0) ? 0 : (double)(hits + suffixHits) / lookups;
+  }
+}
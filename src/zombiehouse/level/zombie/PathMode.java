@@ -0,0 +1,31 @@
+package zombiehouse.level.zombie;
+
+/**
+ * The ways a Zombie can find its path to the Player (see Zombie.calcPath),
+ * picked by LevelVar.pathMode
+ *
+ * FLOW_FIELD - step down the FlowField rooted at the Player that every
+ *              hunting Zombie shares (one search for all of them); a path to
+ *              any other Tile is searched for as ASTAR
+ * ASTAR - plain A* over every Tile of the NavGraph
+ * ASTAR_ASYNC - ASTAR run by the PathService on its worker threads; the
+ *               Zombie keeps walking its old path until the new one arrives
+ * HIERARCHICAL - route through the RoomGraph, then A* in this Room and the next
+ * JUMP_POINT - Jump Point Search, which skips across open Rooms in straight lines
+ * D_STAR_LITE - each Zombie keeps a D* Lite search and repairs it when it or
+ *               its goal moves, instead of searching again from scratch
+ *
+ * The A* searches (ASTAR, ASTAR_ASYNC, HIERARCHICAL) use the ALT heuristic
+ * when LevelVar.ALT_HEURISTIC is on, and the searches that find whole
+ * shortest paths (ASTAR, ASTAR_ASYNC, JUMP_POINT) share them through the
+ * PathCache when LevelVar.PATH_CACHE is on.
+ */
+public enum PathMode
+{
+  FLOW_FIELD,
+  ASTAR,
+  ASTAR_ASYNC,
+  HIERARCHICAL,
+  JUMP_POINT,
+  D_STAR_LITE;
+}
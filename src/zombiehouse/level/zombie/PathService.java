@@ -0,0 +1,247 @@
+package zombiehouse.level.zombie;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import zombiehouse.common.LevelVar;
+import zombiehouse.level.house.NavGraph;
+
+/**
+ * PathService finds paths off the AI thread, a little at a time.
+ *
+ * A Zombie asks for a path with request() and gets a CompletableFuture of the
+ * path's Tile IDs back straight away (null if there is no route), so one slow
+ * search no longer holds up every other Zombie's decision. Zombies use it
+ * when LevelVar.pathMode is PathMode.ASTAR_ASYNC (started on first use).
+ *
+ * The searches are run by worker threads that wake up every tickMillis and
+ * each spend at most budgetNanos on them per tick. Searches are A* runs that
+ * can be stopped and picked up again (AStar.begin / resume): a search that
+ * is still going when the budget runs out is put back at the front of the
+ * queue with all of its state and carries on next tick, so a long search is
+ * spread over a few ticks instead of causing a spike.
+ *
+ * Requests for the same start and goal while one is already queued or
+ * running are coalesced onto it (they get the same future). Paths already in
+ * the PathCache are answered without queueing, and every path found is put
+ * into it (while LevelVar.PATH_CACHE is on).
+ *
+ * private:
+ * pathCache - shared with the Zombies' own searches
+ * budgetNanos - how long each worker may search per tick
+ * workers - the threads the searches run on
+ * queue - requests waiting for (or between) slices, oldest first
+ * inFlight - queued or running requests by (start << 32 | goal), for coalescing
+ * searches - AStars not attached to a request, reused by the next one
+ * workerPath - each thread's path to build results (or read cache hits) in
+ * completed, coalesced, suspended - statistics
+ */
+public class PathService
+{
+  public static final long DEFAULT_TICK_MILLIS = 16;
+  public static final long DEFAULT_BUDGET_NANOS = 2000000;
+  /**
+   * how many Tiles a search expands between checks of the clock
+   */
+  private static final int SLICE = 256;
+
+  private final PathCache pathCache;
+  private final long budgetNanos;
+  private final ScheduledExecutorService workers;
+  private final LinkedBlockingDeque<Request> queue = new LinkedBlockingDeque<>();
+  private final ConcurrentHashMap<Long, Request> inFlight = new ConcurrentHashMap<>();
+  private final ConcurrentLinkedQueue<AStar> searches = new ConcurrentLinkedQueue<>();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong suspended = new AtomicLong();
+  private final ThreadLocal<IntPath> workerPath = new ThreadLocal<IntPath>()
+  {
+    @Override
+    protected IntPath initialValue() { return new IntPath(); }
+  };
+
+  /**
+   * One path request, and the search working on it once it has started
+   */
+  private static class Request
+  {
+    final NavGraph graph;
+    final int startId, goalId;
+    final long key;
+    final CompletableFuture<int[]> result = new CompletableFuture<>();
+    AStar search;
+
+    Request(NavGraph graph, int startId, int goalId, long key)
+    {
+      this.graph = graph;
+      this.startId = startId;
+      this.goalId = goalId;
+      this.key = key;
+    }
+  }
+
+  /**
+   * Starts the service with DEFAULT_TICK_MILLIS, DEFAULT_BUDGET_NANOS and
+   * one worker per two processors
+   */
+  public PathService(PathCache pathCache)
+  {
+    this(pathCache, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_TICK_MILLIS, DEFAULT_BUDGET_NANOS);
+  }
+
+  /**
+   * @param pathCache the cache to answer from and add found paths to
+   * @param workerCount the number of worker threads
+   * @param tickMillis how often the workers wake up
+   * @param budgetNanos how long each worker may search per tick
+   */
+  public PathService(PathCache pathCache, int workerCount, long tickMillis, long budgetNanos)
+  {
+    this.pathCache = pathCache;
+    this.budgetNanos = budgetNanos;
+    final AtomicInteger threadNumber = new AtomicInteger();
+    this.workers = Executors.newScheduledThreadPool(workerCount, new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable task)
+      {
+        Thread thread = new Thread(task, "PathService-" + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    for(int i = 0; i < workerCount; i++)
+    {
+      workers.scheduleAtFixedRate(new Runnable()
+      {
+        @Override
+        public void run() { tick(); }
+      }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Asks for the cheapest path from startId to goalId
+   * @param graph the NavGraph of the house
+   * @param startId where the path starts
+   * @param goalId where the path ends
+   * @return the path's Tile IDs from start to goal once found, or null if
+   *         there is no route (already complete if the path was cached)
+   */
+  public CompletableFuture<int[]> request(NavGraph graph, int startId, int goalId)
+  {
+    IntPath cached = workerPath.get();
+    if(LevelVar.PATH_CACHE && pathCache.fill(graph, startId, goalId, cached))
+    {
+      return CompletableFuture.completedFuture(cached.toArray());
+    }
+    long key = ((long)startId << 32) | (goalId & 0xffffffffL);
+    Request request = new Request(graph, startId, goalId, key);
+    while(true)
+    {
+      Request existing = inFlight.putIfAbsent(key, request);
+      if(existing == null) { break; }
+      if(existing.graph == graph)
+      {
+        coalesced.incrementAndGet();
+        return existing.result;
+      }
+      // left over from the last level, it finishes on its own
+      inFlight.remove(key, existing);
+    }
+    queue.addLast(request);
+    return request.result;
+  }
+
+  /**
+   * One worker's share of a tick: run searches until the budget is spent,
+   * putting an unfinished one back at the front of the queue
+   */
+  private void tick()
+  {
+    long deadline = System.nanoTime() + budgetNanos;
+    IntPath path = workerPath.get();
+    Request request;
+    while(System.nanoTime() < deadline && (request = queue.pollFirst()) != null)
+    {
+      try
+      {
+        if(request.search == null)
+        {
+          request.search = searches.poll();
+          if(request.search == null) { request.search = new AStar(); }
+          request.search.begin(request.graph, request.startId, request.goalId);
+        }
+        int found = AStar.IN_PROGRESS;
+        while(found == AStar.IN_PROGRESS && System.nanoTime() < deadline)
+        {
+          found = request.search.resume(SLICE);
+        }
+        if(found == AStar.IN_PROGRESS)
+        {
+          suspended.incrementAndGet();
+          queue.addFirst(request);
+          return;
+        }
+        int[] ids = null;
+        if(found != NavGraph.NO_TILE)
+        {
+          request.search.buildPath(request.graph, found, path);
+          if(LevelVar.PATH_CACHE) { pathCache.put(request.graph, path); }
+          ids = path.toArray();
+        }
+        finish(request, ids, null);
+      }
+      catch(RuntimeException e)
+      {
+        finish(request, null, e);
+      }
+    }
+  }
+
+  private void finish(Request request, int[] ids, Throwable failure)
+  {
+    inFlight.remove(request.key, request);
+    if(request.search != null)
+    {
+      searches.offer(request.search);
+      request.search = null;
+    }
+    completed.incrementAndGet();
+    if(failure == null) { request.result.complete(ids); }
+    else                { request.result.completeExceptionally(failure); }
+  }
+
+  /**
+   * Stops the workers; requests still waiting are never completed
+   */
+  public void shutdown()
+  {
+    workers.shutdownNow();
+  }
+
+  /**
+   * @return requests queued or part way through a search
+   */
+  public int getPending() { return queue.size(); }
+
+  public long getCompleted() { return completed.get(); }
+
+  /**
+   * @return requests answered by a search that was already queued or running
+   */
+  public long getCoalesced() { return coalesced.get(); }
+
+  /**
+   * @return how many times a search was stopped at the end of a tick
+   *         to be carried on the next one
+   */
+  public long getSuspended() { return suspended.get(); }
+}
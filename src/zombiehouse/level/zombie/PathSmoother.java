@@ -0,0 +1,41 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.level.house.NavGraph;
+
+/**
+ * PathSmoother turns a Tile by Tile path into line of sight waypoints.
+ *
+ * Searches return every Tile of a route, so a Zombie crossing a Room
+ * diagonally would zig-zag a Tile at a time and need a new heading at every
+ * Tile. Smoothing keeps only the Tiles where the route has to turn: from each
+ * waypoint it skips ahead to the furthest Tile of the path that can still be
+ * seen in a straight line (NavGraph.isClearLine), and that becomes the next
+ * waypoint. The Zombie then walks straight lines and only turns at waypoints.
+ *
+ * Smoothing is done in place on the IntPath and allocates nothing.
+ */
+public class PathSmoother
+{
+  /**
+   * Cuts path down to its line of sight waypoints (the first and last Tiles
+   * are always kept)
+   * @param path a path of neighboring Tiles
+   */
+  public static void smooth(IntPath path)
+  {
+    int size = path.size();
+    if(size < 3) { return; }
+    NavGraph graph = path.getGraph();
+    int kept = 1;
+    int anchor = 0;
+    while(anchor < size - 1)
+    {
+      // the next Tile is always in sight, look for the furthest one that is
+      int next = anchor + 1;
+      while(next + 1 < size && graph.isClearLine(path.get(anchor), path.get(next + 1))) { next++; }
+      path.set(kept++, path.get(next));
+      anchor = next;
+    }
+    path.truncate(kept);
+  }
+}
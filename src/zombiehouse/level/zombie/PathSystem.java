@@ -0,0 +1,61 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.level.house.NavGraph;
+
+/**
+ * PathSystem keeps Zombies walking their routes: a Zombie that moved into
+ * the waypoint it was heading for drops it and turns toward the next one.
+ * With smoothed routes (see PathSmoother) that only happens at the turns.
+ *
+ * Writes heading and routeAt; reads position, state and route.
+ */
+public class PathSystem implements ZombieSystem
+{
+  private final NavGraph graph;
+
+  /**
+   * @param graph the NavGraph the routes are on (the level's)
+   */
+  public PathSystem(NavGraph graph)
+  {
+    this.graph = graph;
+  }
+
+  @Override
+  public void run(ZombieStore store, int from, int to)
+  {
+    final double[] x = store.x, y = store.y;
+    final byte[] state = store.state;
+    final int[][] route = store.route;
+    final int[] routeAt = store.routeAt;
+    for(int i = from; i < to; i++)
+    {
+      int[] ids = route[i];
+      if(ids == null || (state[i] & ZombieStore.MOVED) == 0 || ids.length - routeAt[i] < 2) { continue; }
+      if(ids[routeAt[i]] == graph.getId((int) x[i], (int) y[i])) { head(store, i, graph); }
+    }
+  }
+
+  /**
+   * Drops the waypoints at the front of the slot's route that it is already
+   * in and heads it for the next one (unless it is right on it)
+   * @param graph the NavGraph the route is on
+   */
+  public static void head(ZombieStore store, int slot, NavGraph graph)
+  {
+    int[] ids = store.route[slot];
+    if(ids == null) { return; }
+    double x = store.x[slot];
+    double y = store.y[slot];
+    int here = graph.getId((int) x, (int) y);
+    int at = store.routeAt[slot];
+    while(ids.length - at > 1 && ids[at] == here) { at++; }
+    store.routeAt[slot] = at;
+    double diffX = (graph.getX(ids[at]) + 0.5) - x;
+    double diffY = (graph.getY(ids[at]) + 0.5) - y;
+    if(diffX == 0 && diffY == 0) { return; }
+    // the MovementSystem steps by (cos, sin) of the heading, so this is just atan2
+    double angle = Math.toDegrees(Math.atan2(diffY, diffX));
+    store.setHeading(slot, (angle < 0) ? angle + 360 : angle);
+  }
+}
@@ -2,7 +2,6 @@ package zombiehouse.level.zombie;
 
 
 import zombiehouse.level.house.*;
-import zombiehouse.common.*;
 
 /**
  * RandomWalkZombie class contains the behavior for a
@@ -21,7 +20,7 @@ public class RandomWalkZombie extends Zombie
 	 */
 	public RandomWalkZombie(double heading, double positionX, double positionY, Tile curTile, int id)
 	{
-	  super(heading, positionX, positionY, curTile, id);
+	  super(heading, positionX, positionY, curTile, id, ZombieKind.RANDOM_WALK);
 	}
 
 	/**
@@ -31,10 +30,10 @@ public class RandomWalkZombie extends Zombie
 	@Override
 	public void makeDecision()
 	{
-      if(super.scentDetection(super.getZombieSmell(), LevelVar.house) || this.getSmell())
+      if(super.scentDetection(super.getZombieSmell(), getSeenHouse()) || this.getSmell())
 	  {
 		super.setSmell(true);
-		super.calcPath(LevelVar.house);
+		super.calcPath(getSeenHouse());
 	  }
 	  else
 	  {
@@ -0,0 +1,104 @@
+package zombiehouse.level.zombie;
+
+import java.util.Arrays;
+import zombiehouse.level.house.NavGraph;
+
+/**
+ * SearchWorkspace holds the per-search state of a path search (visited,
+ * closed, ancestor and cost of every Tile ID) outside of the Tiles themselves.
+ *
+ * Instead of clearing the arrays after every search, each search gets a new
+ * generation number and an entry only counts if its stamp matches the
+ * current generation, so starting a search is O(1).
+ *
+ * A workspace must only be used by one search at a time, but two searches
+ * with their own workspaces never share any state and can run on different
+ * threads (e.g. the AIScheduler threads and the FX thread).
+ *
+ * private:
+ * generation - the number of the search currently using the workspace
+ * stamp - the generation each ID was last visited in
+ * ancestor - the ID each ID was reached from (NavGraph.NO_TILE for the start)
+ * cost - the cost of reaching each ID
+ * closed - the generation each ID was last closed (fully expanded) in
+ */
+public class SearchWorkspace
+{
+  private int generation = 0;
+  private int[] stamp = new int[0];
+  private int[] ancestor = new int[0];
+  private int[] cost = new int[0];
+  private int[] closed = new int[0];
+
+  /**
+   * Starts a new search, forgetting everything the last one visited
+   * @param size the number of IDs the search may visit (NavGraph.size())
+   */
+  public void begin(int size)
+  {
+    if(stamp.length < size)
+    {
+      stamp = new int[size];
+      ancestor = new int[size];
+      cost = new int[size];
+      closed = new int[size];
+      generation = 0;
+    }
+    generation++;
+    if(generation == Integer.MAX_VALUE)
+    {
+      // only after ~2 billion searches, wipe the stamps and start over
+      Arrays.fill(stamp, 0);
+      Arrays.fill(closed, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * @return true if id was visited during the current search
+   */
+  public boolean isVisited(int id) { return stamp[id] == generation; }
+
+  /**
+   * Marks id visited by the current search
+   * @param id the Tile ID visited
+   * @param fromId the ID id was reached from, or NavGraph.NO_TILE
+   * @param idCost the cost of reaching id
+   */
+  public void visit(int id, int fromId, int idCost)
+  {
+    stamp[id] = generation;
+    ancestor[id] = fromId;
+    cost[id] = idCost;
+  }
+
+  /**
+   * @return the ID id was reached from, or NavGraph.NO_TILE if it was not
+   *         visited by the current search (or was where it started)
+   */
+  public int getAncestor(int id)
+  {
+    if(stamp[id] != generation) { return NavGraph.NO_TILE; }
+    return ancestor[id];
+  }
+
+  public void setAncestor(int id, int fromId) { ancestor[id] = fromId; }
+
+  /**
+   * @return the cost of reaching id in the current search
+   *         (only meaningful if isVisited(id))
+   */
+  public int getCost(int id) { return cost[id]; }
+
+  public void setCost(int id, int idCost) { cost[id] = idCost; }
+
+  /**
+   * @return true if id was closed (fully expanded) during the current search
+   */
+  public boolean isClosed(int id) { return closed[id] == generation; }
+
+  /**
+   * Marks id closed by the current search
+   */
+  public void close(int id) { closed[id] = generation; }
+}
@@ -0,0 +1,59 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.level.house.NavGraph;
+import zombiehouse.level.house.Tile;
+
+/**
+ * SmellSystem measures how far every Zombie is from the Player's scent:
+ * one shallow fill of a FlowField out from the Player (as far as the
+ * largest smellRange in the store, and only when the Player changed Tile),
+ * then a lookup per Zombie into the scent column. The Zombies' decisions
+ * read that (through the WorldSnapshot) instead of each doing its own
+ * lookup under the shared field's lock.
+ *
+ * The distances are the ones Zombie.scentDetection() reads off its own
+ * field: only floor Tiles are walked, and a Zombie on a Tile that isn't
+ * floor smells from the floor next to it.
+ *
+ * Writes scent; reads position. The field is only updated by sense(), on
+ * the thread moving the Zombies, before the pass reads it.
+ *
+ * private final:
+ * field - the scent, filled out from the Player's Tile
+ */
+public class SmellSystem implements ZombieSystem
+{
+  private final FlowField field = new FlowField();
+
+  /**
+   * Fills the scent out from the Player and measures it for every Zombie
+   * of store
+   * @param house the house store's Zombies are in
+   */
+  public void sense(ZombieStore store, Tile[][] house, double playerX, double playerY)
+  {
+    if(store == null || house == null) { return; }
+    NavGraph graph = NavGraph.forHouse(house);
+    field.update(graph, graph.getId((int) playerX, (int) playerY), store.getMaxSmellRange());
+    ZombieSystems.run(store, this);
+  }
+
+  @Override
+  public void run(ZombieStore store, int from, int to)
+  {
+    final double[] x = store.x, y = store.y;
+    final int[] scent = store.scent;
+    for(int i = from; i < to; i++)
+    {
+      scent[i] = field.readDistanceFrom(tileOf(x[i]), tileOf(y[i]));
+    }
+  }
+
+  /**
+   * @return the Tile coordinate of position (-1 for anything left of the house)
+   */
+  private static int tileOf(double position)
+  {
+    return (position < 0) ? -1 : (int) position;
+  }
+}
@@ -9,11 +9,9 @@
 
 package zombiehouse.level.zombie;
 
-import java.util.ArrayList;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import zombiehouse.level.house.*;
 import zombiehouse.common.*;
 import zombiehouse.graphics.Zombie3D;
@@ -21,6 +19,15 @@ import zombiehouse.graphics.Zombie3D;
 /**
  *Zombie class that contains methods inherited by the sub-classes of Zombie
  *as well as all Zombie variables. 
+ *
+ *A Zombie is moved by one thread (the Simulation's, or HouseAniTest's) and
+ *decides on the AIScheduler's. The two don't share anything that changes:
+ *makeDecision() and the methods it calls (getHeading() / setHeading(),
+ *getCollide() / setCollided(), calcPath() and the rest) work on what the
+ *Zombie saw in its WorldSnapshot and on a path of its own (plan), and
+ *publishIntent() hands the result over as a ZombieIntent. The moving thread
+ *applies that (applyIntent()) before it moves the Zombie; only it changes
+ *the ZombieStore, the path being walked and the Tile the Zombie is in.
  */
 public class Zombie
 {
@@ -29,70 +36,108 @@ public class Zombie
    */
   private double zombie_Speed = 0.5;
   /**
-   * the amount of time between Zombie heading updates
+   * how long move() moves the Zombie for, in seconds
    */
-  private static long zombie_Decision_Rate = 2000;
+  private static final double STEP_SECONDS = (double)1/60;
   /**
-   * the number of Tiles away that a Zombie can smell
+   * how close (in Tiles) a Zombie can get to a Wall before it has collided
    */
-  private int zombie_Smell = 15;
+  private static final double WALL_RADIUS = 0.4;
   /**
-   * whether or not a Zombie has scent of the Player
+   * the amount of time between Zombie heading updates
    */
-  private boolean canSmell = false;
+  private static long zombie_Decision_Rate = 2000;
   /**
-   * whether or not a Zombie has collided with an Object
+   * the number of Tiles away that a Zombie can smell (its smellRange in the
+   * ZombieStore)
    */
-  private boolean collided = false;
+  private static final int ZOMBIE_SMELL = 15;
+  /**
+   * whether or not a Zombie has scent of the Player, as it last decided;
+   * set by its decisions and by the AIScheduler passing on a MasterZombie's
+   */
+  private volatile boolean canSmell = false;
   /**
    * this Zombie's ID number
    */
   public int zombieID;
   /**
-   * array of Tiles that lead to the Player
+   * the path the Zombie is deciding on: calcPath() builds it on the AI
+   * thread and publishIntent() hands a copy over if it changed (replanned)
    */
-  public ArrayList<Tile> path = new ArrayList<>();
+  private final IntPath plan = new IntPath();
+  private boolean replanned = false;
   /**
-   * a queue to hold Tiles that search for the Player for scent detection
+   * the heading the Zombie is deciding on (NaN until it decides to turn)
+   * and whether it had collided, as of its WorldSnapshot
    */
-  public Queue<Tile> bfsQueue = new LinkedList<>();
+  private double decidedHeading = Double.NaN;
+  private boolean decidedCollided = false;
   /**
-   * a priority queue that holds Tiles examined while finding Zombie's path to
-   * Player
+   * the Tile the Zombie is deciding from: its Tile in the WorldSnapshot
    */
-  public PriorityQueue<Tile> searchQueue = new PriorityQueue<>(25,
-      new Comparator<Tile>() {
-
-        public int compare(Tile one, Tile two)
-        {
-          if (one.cost > two.cost)
-            return 1;
-          if (one.cost < two.cost)
-            return -1;
-          return 0;
-        }
-      });
+  private Tile seenTile;
   /**
-   * the direction the Zombie will head in degrees
+   * how many Tiles (or jump points) this Zombie's last path search expanded;
+   * the searches themselves are pooled per thread (AStar.forThread())
    */
-  public double heading;
+  private int lastNodesExpanded = 0;
   /**
-   * the Zombie's current X coordinate in the ZombieHouse
+   * this Zombie's incremental D* Lite plan, only made if LevelVar.pathMode
+   * asks for it, and kept from one decision to the next
    */
-  public double positionX;
+  private DStarLite replanner;
   /**
-   * the Zombie's current Y coordinate in the ZombieHouse
+   * the Dijkstra map rooted at the Player that all hunting Zombies share
    */
-  public double positionY;
+  private static final FlowField playerField = new FlowField();
   /**
-   * the Tile the Zombie is currently in inside the ZombieHouse
+   * the player's scent, filled out ZOMBIE_SMELL Tiles from the Player and
+   * shared by all Zombies, for deciding without a WorldSnapshot (with one
+   * the SmellSystem has already measured it)
    */
-  private Tile curTile;
-
+  private static final FlowField scentField = new FlowField();
+  /**
+   * shortest paths found by any Zombie, shared by all of them (see PathCache)
+   */
+  private static final PathCache pathCache = new PathCache();
+  /**
+   * finds paths on worker threads for Zombies when LevelVar.pathMode is
+   * ASTAR_ASYNC, only started the first time one is asked for
+   */
+  private static PathService pathService;
+  /**
+   * this Zombie's path request to the PathService, if one is in flight
+   */
+  private CompletableFuture<int[]> pendingPath;
+  /**
+   * a path the PathService found (as an intent with only a path), waiting
+   * to be picked up by applyIntent()
+   */
+  private final AtomicReference<ZombieIntent> arrivedPath = new AtomicReference<ZombieIntent>();
+  /**
+   * the WorldSnapshot this Zombie is deciding on, shown to it by the
+   * AIScheduler (null if it never was: then the live positions are used)
+   */
+  private WorldSnapshot world;
+  /**
+   * whether the Zombie is asleep, too far from the Player to decide until
+   * something wakes it (see AIScheduler)
+   */
+  private boolean dormant = false;
   /**
-   * The Zombie3D that represents this zombie in a 3D graphical world
+   * what this Zombie last decided, for the game to apply (see ZombieIntent),
+   * and the last one the game did apply
    */
-  public Zombie3D zombie3D;
+  private volatile ZombieIntent intent;
+  private ZombieIntent appliedIntent;
+  /**
+   * the ZombieStore holding this Zombie's components (position, heading,
+   * speed, state, smell, the path it walks, how it is drawn), and its slot
+   * there
+   */
+  private final ZombieStore store;
+  private final int slot;
 
   /**
    * Constructs a Zombie object with the specified heading, X coordinate position,
@@ -101,20 +146,42 @@ public class Zombie
    */
   public Zombie(double heading, double positionX, double positionY,
       Tile curTile, int id) {
-    this.heading = heading;
-    this.positionX = positionX;
-    this.positionY = positionY;
-    this.curTile = curTile;
+    this(heading, positionX, positionY, curTile, id, ZombieKind.PLAIN);
+  }
+
+  /**
+   * Constructs a Zombie of the given kind; for the sub-classes of Zombie
+   */
+  protected Zombie(double heading, double positionX, double positionY,
+      Tile curTile, int id, ZombieKind kind) {
+    if(LevelVar.zombieStore == null) { LevelVar.zombieStore = new ZombieStore(); }
+    this.store = LevelVar.zombieStore;
+    this.slot = store.add(positionX, positionY, heading, zombie_Speed, ZOMBIE_SMELL, kind);
+    this.seenTile = curTile;
     this.zombieID = id;
-    if(LevelVar.zombie3D) { zombie3D = new Zombie3D(); }
+    if(LevelVar.zombie3D)
+    {
+      Zombie3D zombie3D = new Zombie3D();
+      store.setView(slot, zombie3D);
+      store.setFrame(slot, zombie3D.getFrame());
+    }
   }
 
   /**
-   * @return the Zombie class' zombie_Smell
+   * @return the number of Tiles away this Zombie can smell
    */
   public int getZombieSmell()
   {
-  return this.zombie_Smell;
+  return store.getSmellRange(slot);
+  }
+
+  /**
+   * @return the Zombie3D that represents this zombie in a 3D graphical
+   *         world (null if the game isn't 3D)
+   */
+  public Zombie3D getZombie3D()
+  {
+    return store.getView(slot);
   }
   
   /**
@@ -126,20 +193,20 @@ public class Zombie
   }
 
   /**
-   * Sets this Zombie object's collided value to value
+   * Sets this Zombie object's collided value to value, for the rest of its
+   * decision (the live one belongs to the thread moving it)
    */
   public void setCollided(boolean value)
   {
-  //System.out.println("Set Collided to " + value);
-    this.collided = value;
+    this.decidedCollided = value;
   }
 
   /**
-   * @return this Zombie's collided value
+   * @return this Zombie's collided value, as of its WorldSnapshot
    */
   public boolean getCollide()
   {
-    return this.collided;
+    return this.decidedCollided;
   }
 
   /**
@@ -159,35 +226,59 @@ public class Zombie
   }
   
   /**
-   * @return this Zombie's curTile parameter
+   * @return the Tile this Zombie is in, or null if it is off the house
    */
   public Tile getPosition()
   {
-    return curTile;
+    double x = this.getPositionX();
+    double y = this.getPositionY();
+    Tile[][] house = LevelVar.house;
+    if(house == null || x < 0 || y < 0 || (int) x >= house.length || (int) y >= house[0].length) { return null; }
+    return house[(int) x][(int) y];
   }
 
   /**
-   * Sets the Zombie's Tile parameter to tile
+   * Puts the Zombie in the middle of tile
    */
   public void setPosition(Tile tile)
   {
-    this.curTile = tile;
+    this.setPositionX(tile.xCor + 0.5);
+    this.setPositionY(tile.yCor + 0.5);
   }
 
   /**
-   * @return this Zombie's heading parameter
+   * @return this Zombie's heading parameter: the one it decided on, or the
+   *         one it had in its WorldSnapshot
    */
   public double getHeading()
   {
-    return this.heading;
+    if(!Double.isNaN(decidedHeading)) { return decidedHeading; }
+    return (world == null) ? store.getHeading(slot) : world.getHeading(this);
   }
 
   /**
-   * Sets this Zombie's heading parameter to heading
+   * Sets this Zombie's heading parameter to heading; the Zombie turns when
+   * the game applies its intent
    */
   public void setHeading(double heading)
   {
-    this.heading = heading;
+    this.decidedHeading = heading;
+  }
+
+  /**
+   * @return this Zombie's current X coordinate in the ZombieHouse
+   */
+  public double getPositionX()
+  {
+    return store.getX(slot);
+  }
+
+  /**
+   * @return this Zombie's current Y coordinate in the ZombieHouse
+   */
+  public double getPositionY()
+  {
+    return store.getY(slot);
   }
 
   /**
@@ -195,7 +286,7 @@ public class Zombie
    */
   public void setPositionX(double posX)
   {
-    this.positionX = posX;
+    store.setX(slot, posX);
   }
 
   /**
@@ -203,352 +294,560 @@ public class Zombie
    */
   public void setPositionY(double posY)
   {
-    this.positionY = posY;
+    store.setY(slot, posY);
   }
-  
+
   /**
-   * round method borrowed from Max's MainApplication class
+   * @return where the Zombie was before the last Simulation step (see
+   *         ZombieStore.saveLastPositions()), to draw it part way between
+   *         there and its position
    */
-  private int round(double toRound)
+  public double getLastPositionX()
   {
-    if (toRound - ((int)toRound) < 0.5)
-    {
-      return (int)toRound;
-    }
-    else
-    {
-      return (int)toRound + 1;
-    }
+    return store.getLastX(slot);
+  }
+
+  public double getLastPositionY()
+  {
+    return store.getLastY(slot);
+  }
+
+  /**
+   * @return what kind of Zombie this is
+   */
+  public ZombieKind getKind()
+  {
+    return store.getKind(slot);
   }
 
+  /**
+   * @return this Zombie's slot in its ZombieStore
+   */
+  public int getSlot()
+  {
+    return slot;
+  }
+
+  /**
+   * @return the ZombieStore this Zombie is a view of
+   */
+  public ZombieStore getStore()
+  {
+    return store;
+  }
+  
   /**
    * Sets the X and Y coordinates of this Zombie to the position
    * altered by a factor of zombie_Speed and by the heading of the Zombie
    * assuming the Zombie's collided value is false, otherwise, it will not
-   * change its coordinate or curTile parameters.
+   * change its coordinates.
+   * This is the systems of moveAll() run for this Zombie's slot only; to
+   * move all of a level's Zombies use moveAll().
    */
   public void move()
   {
-    if (!this.collided) 
-    {
-      double moveX;
-      double moveY;
-      double step = (double)1/60;
-      if(this instanceof MasterZombie)
-      {
-        moveX = (Math.cos(Math.toRadians(this.heading)) * (this.zombie_Speed + LevelVar.levelNum*0.125)) * step;
-        moveY = (Math.sin(Math.toRadians(this.heading)) * (this.zombie_Speed + LevelVar.levelNum*0.125)) * step;
-      }
-      moveX = (Math.cos(Math.toRadians(this.heading)) * this.zombie_Speed) * step;
-      moveY = (Math.sin(Math.toRadians(this.heading)) * this.zombie_Speed) * step;
-      if(this.positionX > 0 && this.positionX <= LevelVar.house[0].length && this.positionY > 0 && this.positionY <= LevelVar.house.length)
-      {
-    	this.positionX += moveX;
-    	this.positionY += moveY;
-    	this.curTile = LevelVar.house[(int) this.positionX][(int) this.positionY];
-      }
-      this.setCollided(this.collide());
-      if(this.getCollide())
-      {
-        while (!(LevelVar.house[round(this.positionX)][round(this.positionY)] instanceof Tile))
-        {
-          if (this.positionX < 5)
-          {
-            this.positionX += 1; 
-          }
-          else
-          {
-            this.positionX -= 1;
-          }
-        }
-        this.setCollided(false);
-      }
-    }
+    this.applyIntent();
+    ZombieSystems.run(store, slot, slot + 1, movingSystems());
+    if(LevelVar.zombieGrid != null && LevelVar.zombieGrid.getStore() == store) { LevelVar.zombieGrid.moved(slot); }
+  }
+
+  /**
+   * move() for every one of zombies, which must all be in the same
+   * ZombieStore (the ones of a level are): applies what each decided, then
+   * runs the MovementSystem, PathSystem and CollisionSystem over the whole
+   * store in one pass (split over the ForkJoinPool for big hordes) and
+   * brings the ZombieGrid up to date
+   */
+  public static void moveAll(List<Zombie> zombies)
+  {
+    if(zombies.isEmpty()) { return; }
+    for(Zombie zombie : zombies) { zombie.applyIntent(); }
+    ZombieStore store = zombies.get(0).store;
+    ZombieSystems.run(store, movingSystems());
+    if(LevelVar.zombieGrid != null && LevelVar.zombieGrid.getStore() == store) { LevelVar.zombieGrid.update(); }
+  }
+
+  /**
+   * @return the systems move() runs, in order: one step along the headings,
+   *         turns at the waypoints reached, and out of any Wall run into
+   */
+  private static ZombieSystem[] movingSystems()
+  {
+    Tile[][] house = LevelVar.house;
+    return new ZombieSystem[] {
+        new MovementSystem(STEP_SECONDS, house[0].length, house.length),
+        new PathSystem(NavGraph.forHouse(house)),
+        new CollisionSystem(WallField.forHouse(house), WALL_RADIUS)
+    };
+  }
+
+  /**
+   * Applies what the Zombie last decided, if that hasn't been done yet: it
+   * switches to the path it found (and heads along it from where it is now)
+   * or turns to the heading it decided on. Also picks up a path the
+   * PathService found. Only the thread moving the Zombie may call this;
+   * move() and moveAll() do before they move it.
+   */
+  public void applyIntent()
+  {
+    this.takeArrivedPath();
+    ZombieIntent decided = this.intent;
+    if(decided == null || decided == appliedIntent) { return; }
+    appliedIntent = decided;
+    if(decided.hasHeading()) { store.setHeading(slot, decided.getHeading()); }
+    if(decided.getPath() != null) { this.switchPath(decided); }
+  }
+
+  /**
+   * Makes the path of intent (one found for the current house) the route
+   * the Zombie walks, and heads along it from where the Zombie is now. The
+   * intent's array becomes the route as it is (neither is ever changed).
+   */
+  private void switchPath(ZombieIntent intent)
+  {
+    store.setRoute(slot, (intent.getGraph() == LevelVar.navGraph) ? intent.getPath() : null);
+    this.makeHeading();
   }
 
   /**
    * Calculates whether the Zombie has collided with an object
    * and sets the Zombie's collided value accordingly
+   * Other Zombies within 2 Tiles are looked for in LevelVar.zombieGrid,
+   * so only the cells around this Zombie are searched, and Walls closer than
+   * WALL_RADIUS are found with a lookup in the level's WallField
    * @return true if the Zombie has collided and false if the Zombie has not
    */
   public boolean collide()
   {
-    for(Zombie z : LevelVar.zombieCollection)
-    { 
-      if(z.positionX != this.positionX && z.positionY != this.positionY)
+    double positionX = this.getPositionX();
+    double positionY = this.getPositionY();
+    ZombieGrid grid = LevelVar.zombieGrid;
+    if(grid != null && grid.getStore() == store && grid.contains(slot))
+    {
+      if(grid.anyWithin(slot, 2)) { return true; }
+    }
+    else
+    {
+      for(Zombie z : LevelVar.zombieCollection)
       {
-        double diffX = (z.positionX - this.positionX);
-        double diffY = (z.positionY - this.positionY);
+        if(z == this) { continue; }
+        double diffX = (z.getPositionX() - positionX);
+        double diffY = (z.getPositionY() - positionY);
         if((diffX*diffX) + (diffY*diffY) <= 4)
         {
           return true;
         }
       }
     }
-    for(int i = (int)this.positionY - 1; i < (int)this.positionY + 2; i++)
+    // walls: one lookup in the level's WallField
+    if(WallField.forHouse(LevelVar.house).getDistance(positionX, positionY) <= WALL_RADIUS)
     {
-      for(int j = (int)this.positionX - 1; j < (int)this.positionX + 2; j++)
-      {
-    	if(i >= 0 && j >= 0 && i <= LevelVar.house[j].length && j <= LevelVar.house.length)
-    	{
-          if(LevelVar.house[j][i] instanceof Wall || LevelVar.house[j][i] instanceof Exit)
-          {
-            double dist;
-            if((int)this.positionX > j) 
-            {
-            if((int)this.positionY > i) 
-            {
-              dist = Math.sqrt(((this.positionX - ((j*2)+1.8)) * ((this.positionX - ((j*2)+1.8)))) + ((this.positionY - ((i*2)+1.8))*(this.positionY - ((i*2)+1.8))));
-            }
-            else if((int)this.positionY == i)
-            {
-              dist = this.positionX - ((j*2)+1.8);
-            }
-            else
-            {
-              dist = Math.sqrt(((this.positionX - ((j*2)+1.8))*((this.positionX - ((j*2)+1.8)))) + ((this.positionY - ((i * 2) - 0.2))*((this.positionY - ((i * 2) - 0.2)))));
-            }
-          }
-          else if((int)this.positionX == j)
-          {
-            if((int)this.positionY > i )
-            {
-              dist = this.positionY - ((i * 2) + 1.8);
-            }
-            else if((int)this.positionY == i)
-            {
-              return true;
-            }
-            else
-            {
-              dist = ((i * 2) - 0.2) - this.positionY;
-            }
-          }
-          else
-          {
-            if((int)this.positionY > i)
-            {
-              dist = Math.sqrt(((this.positionX - ((j * 2) - 0.2))*((this.positionX - ((j * 2) - 0.2)))) + ((this.positionY - ((i * 2)+1.8))*((this.positionY - ((i * 2)+1.8)))));
-            }
-            else if((int)this.positionY == i)
-            {
-              dist = ((j * 2) - 0.2) - this.positionX;
-            }
-            else
-            {
-              dist = Math.sqrt(((this.positionX - ((j * 2) - 0.2))*((this.positionX - ((j * 2) - 0.2)))) + ((this.positionY - ((i * 2) - 0.2))*((this.positionY - ((i * 2) - 0.2)))));
-            }
-          }
-          if(dist <= 1.0) 
-          {
-            return true;
-          }
-          return false;
-        }
-      }
+      return true;
     }
-  }
-  return false;
+    int x = (int) positionX;
+    int y = (int) positionY;
+    return x >= 0 && y >= 0 && x < LevelVar.house.length && y < LevelVar.house[x].length
+        && LevelVar.house[x][y] instanceof Exit;
   }
 
   /**
    * Tests to see if this Zombie can smell the player
-   * @param searchDepth the Zombie's zombie_Smell
+   * The shared scentField holds how many steps every Tile near the player is
+   * from the player, so this is a lookup rather than a search of its own.
+   * Before that, the RoomGraph's Room to Room gap rules out (in O(1)) a
+   * player who is clearly out of range, without touching the scent field.
+   * As with the BFS each Zombie used to run out from its own Tile, only
+   * floor Tiles are walked (see FlowField) and a Zombie on a Tile that isn't
+   * floor smells from the floor next to it. The player is smelt up to
+   * searchDepth steps away; that BFS meant to do the same, but its count of
+   * levels drifted as the queue grew, so it gave up anywhere from 12 to 15
+   * steps out depending on the shape of the rooms (and from a Tile that
+   * isn't floor the count could run away altogether, smelling the player
+   * from anywhere it could be walked to).
+   * Deciding on a WorldSnapshot of house, the SmellSystem has already
+   * measured the distance when the snapshot was published, so it is read
+   * from there.
+   * @param searchDepth the Zombie's smellRange
    * @param house the 2d array of Tiles to search through
    * @return true if the Zombie can smell the player, otherwise returns false
    */
   public boolean scentDetection(int searchDepth, Tile[][] house)
   {
-    int depth = 0;
-    int numTillDepthIncrease = 0;
-    boolean increaseDepth = false;
-    ArrayList<Tile> visitedTiles = new ArrayList<>();
-    Tile destTile = LevelVar.house[(int)Player.xPosition][(int)Player.yPosition];
-    
-    this.bfsQueue.clear();
-    this.bfsQueue.add(this.curTile);
-    numTillDepthIncrease++;
-    this.curTile.setVisited(true);
-    visitedTiles.add(this.curTile);
-    while (!(this.bfsQueue.isEmpty())) 
+    if(world != null && world.getHouse() == house && searchDepth <= world.getScentDepth())
     {
-      Tile currentTile = this.bfsQueue.poll();
-      if(increaseDepth)
-      {
-        numTillDepthIncrease += this.bfsQueue.size();
-        increaseDepth = false;
-      }
-      if(--numTillDepthIncrease == 0)
-      {
-        depth++;
-        increaseDepth = true;
-        if(depth > searchDepth)
-        {
-          for(Tile t : visitedTiles)
-          {
-            t.setVisited(false);
-          }
-          return false;
-        }
-      }
-      if(currentTile == destTile)
-      {
-        for(Tile t : visitedTiles)
-        {
-          t.setVisited(false);
-        }
-        return true;
-      }
-      if(currentTile.neighbors.size() == 0) currentTile.setNeighbors(house);
-      for(int i = 0; i < currentTile.neighbors.size(); i++)
+      return world.getScent(this) <= searchDepth;
+    }
+    NavGraph graph = NavGraph.forHouse(house);
+    int playerId = graph.getId((int) seenPlayerX(), (int) seenPlayerY());
+    RoomGraph rooms = LevelVar.roomGraph;
+    // (the gap is only a bound between floor Tiles)
+    if(rooms != null && rooms.getNavGraph() == graph && this.seenTile.isFloor())
+    {
+      if(playerId != NavGraph.NO_TILE && rooms.getMinDistance(graph.getId(this.seenTile), playerId) > searchDepth)
       {
-        if(!(currentTile.neighbors.get(i).visited))
-        {
-          this.bfsQueue.add(currentTile.neighbors.get(i));
-          currentTile.neighbors.get(i).setVisited(true);
-          visitedTiles.add(currentTile.neighbors.get(i));
-        }
+        return false;
       }
     }
-    for(Tile t : visitedTiles)
+    // Zombies decide in parallel: keep another update out between these two
+    synchronized(scentField)
     {
-      t.setVisited(false);
+      scentField.update(graph, playerId, searchDepth);
+      return scentField.getDistanceFrom(this.seenTile) <= searchDepth;
     }
-    return false;
   }
   
   
   /**
-   * A* algorithm for the Zombie to use once it's canSmell value is true
-   * Sets the Zombie's path arrayList to a list of Tiles from itself to the
-   * player.
+   * Finds the Zombie's way to the player once it's canSmell value is true
+   * Sets the Zombie's plan to the Tiles from itself toward the
+   * player, read off the shared FlowField with PathMode.FLOW_FIELD, or
+   * searched for with whichever search LevelVar.pathMode picks.
    * @param house 2d array of Tiles to search
    */
   public void calcPath(Tile[][] house)
   {
-    ArrayList<Tile> visitedTiles = new ArrayList<>();
-    Tile destTile = house[(int)Player.xPosition][(int)Player.yPosition];
+    if(LevelVar.pathMode != PathMode.FLOW_FIELD)
+    {
+      calcPath(house, house[(int)seenPlayerX()][(int)seenPlayerY()]);
+      return;
+    }
+    NavGraph graph = NavGraph.forHouse(house);
+    this.replan(graph);
+    Tile nextTile;
+    synchronized(playerField)
+    {
+      playerField.update(graph, graph.getId((int) seenPlayerX(), (int) seenPlayerY()), FlowField.UNREACHABLE);
+      nextTile = playerField.nextStep(this.seenTile);
+    }
+    if(nextTile == null) { return; }
+    this.plan.add(graph.getId(this.seenTile));
+    this.plan.add(graph.getId(nextTile));
+    this.aim();
+  }
+  
+  /**
+   * @return the FlowField rooted at the player shared by all Zombies
+   */
+  public static FlowField getPlayerField()
+  {
+    return playerField;
+  }
+  
+  /**
+   * @return the PathCache shared by all Zombies (for its hit / miss counts)
+   */
+  public static PathCache getPathCache()
+  {
+    return pathCache;
+  }
   
-    this.searchQueue.clear();
-    this.path.clear();
-    this.searchQueue.add(this.curTile);
-    this.curTile.setVisited(true);
-    visitedTiles.add(this.curTile);
-    while(!(this.searchQueue.isEmpty()))
+  /**
+   * A* algorithm for the Zombie to find its way to a given Tile
+   * Sets the Zombie's plan to the Tiles from itself to destTile.
+   * Searches the level's NavGraph with the AStar pooled for this thread,
+   * so no Tile is written to and nothing is allocated. The search used is
+   * picked by LevelVar.pathMode; with HIERARCHICAL the path only goes as far
+   * as the next Room on the way (it is recalculated every decision).
+   * FLOW_FIELD only has paths to the Player, so here it searches like ASTAR.
+   * With LevelVar.PATH_CACHE on, ASTAR and JUMP_POINT share their full
+   * shortest paths through the PathCache (ASTAR_ASYNC does through the
+   * PathService); the other modes neither read nor fill it.
+   * @param house 2d array of Tiles to search
+   * @param destTile the Tile to find a path to
+   */
+  public void calcPath(Tile[][] house, Tile destTile)
+  {
+    NavGraph graph = NavGraph.forHouse(house);
+    int startId = graph.getId(this.seenTile);
+    int destId = graph.getId(destTile);
+    if(LevelVar.pathMode == PathMode.ASTAR_ASYNC)
+    {
+      // keep walking the old path until the new one arrives (applyIntent() picks it up)
+      this.requestPath(graph, startId, destId);
+      return;
+    }
+    this.replan(graph);
+    lastNodesExpanded = 0;
+    if(LevelVar.pathMode == PathMode.D_STAR_LITE)
     {
-      Tile currentTile = this.searchQueue.poll();
-      if(currentTile.xCor == destTile.xCor && currentTile.yCor == destTile.yCor)
+      if(replanner == null) { replanner = new DStarLite(); }
+      boolean found = replanner.plan(graph, startId, destId);
+      lastNodesExpanded = replanner.getLastProcessed();
+      if(found)
       {
-        this.path.add(0, currentTile);
-        while(currentTile.ancestor != null)
-        {
-          this.path.add(0, currentTile.ancestor);
-          if(currentTile.ancestor != null) currentTile = currentTile.ancestor;
-        }
-        for(Tile t : visitedTiles)
-        {
-          t.setVisited(false);
-          t.setAncestor(null);
-        }
-        this.makeHeading();
-        break;
+        replanner.buildPath(this.plan);
+        this.followPlan();
       }
-      if(currentTile.neighbors.size() == 0) 
+      return;
+    }
+    boolean cached = LevelVar.PATH_CACHE && (LevelVar.pathMode == PathMode.ASTAR || LevelVar.pathMode == PathMode.JUMP_POINT);
+    if(cached && pathCache.fill(graph, startId, destId, this.plan))
+    {
+      this.followPlan();
+      return;
+    }
+    if(LevelVar.pathMode == PathMode.JUMP_POINT)
+    {
+      JumpPointSearch jumpSearch = JumpPointSearch.forThread();
+      boolean found = jumpSearch.search(graph, startId, destId);
+      lastNodesExpanded = jumpSearch.getLastExpanded();
+      if(found)
       {
-        currentTile.setNeighbors(house);
+        jumpSearch.buildPath(graph, destId, this.plan);
+        if(cached) { pathCache.put(graph, this.plan); }
+        this.followPlan();
       }
-      for(int i = 0; i < currentTile.neighbors.size(); i++)
+      return;
+    }
+    AStar pathSearch = AStar.forThread();
+    RoomGraph rooms = LevelVar.roomGraph;
+    if(LevelVar.pathMode == PathMode.HIERARCHICAL && rooms != null && rooms.getNavGraph() == graph)
+    {
+      // plan through the Rooms first, then only search this Room and the next
+      int startRoom = rooms.getRoom(startId);
+      int nextRoom = rooms.nextRoom(startRoom, rooms.getRoom(destId));
+      if(nextRoom != RoomGraph.NO_ROOM)
       {
-        if(!(currentTile.neighbors.get(i).visited))
+        int endId = pathSearch.searchToRoom(rooms, startId, destId, startRoom, nextRoom);
+        lastNodesExpanded = pathSearch.getLastExpanded();
+        if(endId != NavGraph.NO_TILE)
         {
-          int xCor = currentTile.neighbors.get(i).xCor;
-          int yCor = currentTile.neighbors.get(i).yCor;
-          int distance = ((int) Math.sqrt((xCor - ((int)Player.xPosition)) * (xCor - ((int)Player.xPosition)) + ((yCor - ((int)Player.yPosition)) * (yCor - ((int)Player.yPosition)))));
-          if(currentTile.neighbors.get(i) instanceof Wall)
-          {
-            currentTile.neighbors.get(i).setCost(10000);
-          }
-          else 
-          {
-            currentTile.neighbors.get(i).setCost(distance + currentTile.cost + 1);
-          }
-          this.searchQueue.add(currentTile.neighbors.get(i));
-          currentTile.neighbors.get(i).setVisited(true);
-          visitedTiles.add(currentTile.neighbors.get(i));
-          currentTile.neighbors.get(i).setAncestor(currentTile);
+          pathSearch.buildPath(graph, endId, this.plan);
+          this.followPlan();
+          return;
         }
       }
     }
+    boolean found = pathSearch.search(graph, startId, destId);
+    lastNodesExpanded += pathSearch.getLastExpanded();
+    if(found)
+    {
+      pathSearch.buildPath(graph, destId, this.plan);
+      if(cached) { pathCache.put(graph, this.plan); }
+      this.followPlan();
+    }
+  }
+  
+  /**
+   * Asks the PathService for a path, unless this Zombie is still waiting
+   * for one; the path is handed over through arrivedPath
+   */
+  private void requestPath(NavGraph graph, int startId, int destId)
+  {
+    if(this.pendingPath != null && !this.pendingPath.isDone()) { return; }
+    synchronized(Zombie.class)
+    {
+      if(pathService == null) { pathService = new PathService(pathCache); }
+    }
+    this.pendingPath = pathService.request(graph, startId, destId);
+    this.pendingPath.thenAccept(ids ->
+    {
+      if(ids != null) { this.arrivedPath.set(new ZombieIntent(Double.NaN, true, smoothed(graph, ids), graph, 0)); }
+    });
+  }
+  
+  /**
+   * @return ids cut down to line of sight waypoints when
+   *         LevelVar.SMOOTH_PATHS is on (see PathSmoother), as a new array;
+   *         for paths from the PathService, smoothed on its thread
+   */
+  private static int[] smoothed(NavGraph graph, int[] ids)
+  {
+    if(!LevelVar.SMOOTH_PATHS) { return ids; }
+    IntPath path = new IntPath();
+    path.clear(graph);
+    path.setAll(ids, 0, ids.length);
+    PathSmoother.smooth(path);
+    return path.toArray();
   }
 
   /**
-   * Used to tell the Zombie where to go once using the A* path obtained 
-   * from calcPath()
-   * @param time Used to set initial heading for first call
+   * Switches to a path the PathService found, if one has arrived since the
+   * last call (and the level hasn't changed since it was asked for)
    */
-  public void makeHeading()
+  private void takeArrivedPath()
   {
-    Tile destTile = this.path.get(0);
-    double diffX;
-    double diffY;
-    double dist;
-    
-      if (destTile.xCor == (int) this.positionX
-          && destTile.yCor == (int) this.positionY) 
-      {
-        this.path.remove(0);
-        destTile = this.path.get(0);
-      }
-      diffX = ((destTile.xCor*2) + 0.5) - this.positionX;
-      diffY = ((destTile.yCor*2) + 0.5) - this.positionY;
-      dist = Math.sqrt(((diffX) * (diffX)) + ((diffY) * (diffY)));
-      System.out.println("diffX = " + diffX + " diffY = " + diffY + " dist = " + dist);
-      if (destTile.xCor > this.positionX) 
-      {
-        if (destTile.yCor > this.positionY) 
-        {
-          double cosZ = Math.toDegrees(Math.acos(diffX/dist));
-          this.setHeading(cosZ);
-        } 
-        else if (destTile.yCor == this.positionY)
-        {
-          this.setHeading(0.0);
-        }
-        else 
-        {
-          double cosZ = Math.toDegrees(Math.acos(diffX/dist));
-          this.setHeading(360 - cosZ);
-        }
-      } 
-      else if (destTile.xCor == this.positionX) 
-      {
-        if (destTile.yCor > this.positionY) 
-        {
-          this.setHeading(90.0);
-        }
-        else 
-        {
-          this.setHeading(270.0);
-        }
-      } 
-      else if (destTile.xCor < this.positionX) 
+    ZombieIntent arrived = this.arrivedPath.getAndSet(null);
+    if(arrived != null) { this.switchPath(arrived); }
+  }
+  
+  /**
+   * @return the PathService Zombies send their requests to, or null if
+   *         ASTAR_ASYNC hasn't been used yet
+   */
+  public static PathService getPathService()
+  {
+    return pathService;
+  }
+  
+  /**
+   * Stops the PathService, if it was started; the next request starts a new one
+   */
+  public static void shutdownPathService()
+  {
+    synchronized(Zombie.class)
+    {
+      if(pathService != null)
       {
-        if (destTile.yCor > this.positionY) 
-        {
-          double cosZ = Math.toDegrees(Math.acos((diffX/dist)));
-          this.setHeading(90 + cosZ);
-        }
-        else if (destTile.yCor == this.positionY)
-        {
-          this.setHeading(180.0);
-        }
-        else 
-        {
-          double cosZ = Math.toDegrees(Math.acos(diffX/dist));
-          this.setHeading(180 + cosZ);
-        }
+        pathService.shutdown();
+        pathService = null;
       }
-    } 
+    }
+  }
+  
+  /**
+   * Empties the plan for a new path on graph, to be handed over with the
+   * decision
+   */
+  private void replan(NavGraph graph)
+  {
+    this.plan.clear(graph);
+    this.replanned = true;
+  }
+  
+  /**
+   * Heads the Zombie along the plan just found, cut down to line of sight
+   * waypoints first when LevelVar.SMOOTH_PATHS is on (the PathCache keeps
+   * the full path, so it is smoothed after being cached)
+   */
+  private void followPlan()
+  {
+    if(LevelVar.SMOOTH_PATHS) { PathSmoother.smooth(this.plan); }
+    if(this.plan.size() > 1) { this.aim(); }
+  }
+  
+  /**
+   * @return the number of Tiles (jump points for JUMP_POINT) this Zombie's
+   *         last path search expanded
+   */
+  public int getLastNodesExpanded()
+  {
+    return lastNodesExpanded;
+  }
+
+  /**
+   * Points the Zombie at the next waypoint of the route it is walking,
+   * dropping any waypoint it is already standing in.
+   * Called when a path is applied; the PathSystem does the same each time a
+   * waypoint is reached, so with smoothed paths the heading only changes at
+   * the turns. Only the thread moving the Zombie may call this.
+   */
+  public void makeHeading()
+  {
+    if(LevelVar.navGraph != null) { PathSystem.head(store, slot, LevelVar.navGraph); }
+  }
+
+  /**
+   * makeHeading() for the plan being decided on, from where the Zombie is
+   * in its WorldSnapshot
+   */
+  private void aim()
+  {
+    double x = (world == null) ? this.getPositionX() : world.getX(this);
+    double y = (world == null) ? this.getPositionY() : world.getY(this);
+    double heading = headingAlong(this.plan, x, y);
+    if(!Double.isNaN(heading)) { this.decidedHeading = heading; }
+  }
+
+  /**
+   * Drops the waypoints at the front of path that (x, y) is already in
+   * @return the heading in degrees from (x, y) to the next waypoint, or NaN
+   *         if the path is empty or (x, y) is right on it
+   */
+  private static double headingAlong(IntPath path, double x, double y)
+  {
+    if(path.isEmpty()) { return Double.NaN; }
+    int here = path.getGraph().getId((int) x, (int) y);
+    while(path.size() > 1 && path.get(0) == here) { path.advance(); }
+    Tile destTile = path.getTile(0);
+    double diffX = (destTile.xCor + 0.5) - x;
+    double diffY = (destTile.yCor + 0.5) - y;
+    if(diffX == 0 && diffY == 0) { return Double.NaN; }
+    // move() steps by (cos, sin) of the heading, so this is just atan2
+    double angle = Math.toDegrees(Math.atan2(diffY, diffX));
+    return (angle < 0) ? angle + 360 : angle;
+  }
+
+  /**
+   * Shows the Zombie the WorldSnapshot to make its next decision on; it
+   * takes its own Tile, heading and collided value and the Player's
+   * position from there rather than from the live game
+   */
+  public void observe(WorldSnapshot world)
+  {
+    this.world = world;
+    Tile seen = world.getTile(this);
+    if(seen != null) { this.seenTile = seen; }
+    this.decidedHeading = Double.NaN;
+    this.decidedCollided = world.isCollided(this);
+    this.replanned = false;
+  }
+
+  /**
+   * Hands what the Zombie just decided over to the game: the heading it
+   * turned to (if it did), whether it is hunting and a copy of its plan
+   * (if it found a new one)
+   */
+  public void publishIntent()
+  {
+    int[] ids = this.replanned ? this.plan.toArray() : null;
+    this.replanned = false;
+    this.intent = new ZombieIntent(this.decidedHeading, this.canSmell, ids, this.plan.getGraph(), (world == null) ? 0 : world.getStep());
+  }
+
+  /**
+   * Puts the Zombie to sleep while it is too far from the Player to be worth
+   * deciding for (see AITier): it stops hunting and forgets its path
+   */
+  public void goDormant(WorldSnapshot world)
+  {
+    this.world = world;
+    this.dormant = true;
+    this.canSmell = false;
+    this.decidedHeading = Double.NaN;
+    this.replan(this.plan.getGraph());
+    this.publishIntent();
+  }
+
+  /**
+   * Wakes the Zombie from goDormant(); it decides again from its next turn
+   */
+  public void wake()
+  {
+    this.dormant = false;
+  }
+
+  public boolean isDormant()
+  {
+    return dormant;
+  }
+
+  /**
+   * @return what the Zombie last decided, or null if it hasn't yet
+   */
+  public ZombieIntent getIntent()
+  {
+    return intent;
+  }
+
+  /**
+   * @return the Zombies of the level, as of the WorldSnapshot if there is one
+   */
+  protected List<Zombie> getLevelZombies()
+  {
+    return (world == null) ? LevelVar.zombieCollection : world.getZombies();
+  }
+
+  /**
+   * @return the house of the WorldSnapshot this Zombie is deciding on (the
+   *         live LevelVar.house if it never observed one); decisions search
+   *         this, never the live house, which a restart may be rebuilding
+   */
+  protected Tile[][] getSeenHouse() { return (world == null) ? LevelVar.house : world.getHouse(); }
+
+  private double seenPlayerX() { return (world == null) ? Player.xPosition : world.getPlayerX(); }
+
+  private double seenPlayerY() { return (world == null) ? Player.yPosition : world.getPlayerY(); }
 
   /**
    * An abstract method inherited and implements by all sub-classes
@@ -0,0 +1,205 @@
+package zombiehouse.level.zombie;
+
+import java.util.Arrays;
+
+/**
+ * ZombieGrid is a uniform spatial hash of the level's Zombies, so finding
+ * the Zombies near a point only looks at the few cells around it instead
+ * of every Zombie in the house.
+ *
+ * The house is cut into square cells CELL_SIZE Tiles on a side. Each cell
+ * keeps its Zombies in a doubly linked list of ZombieStore slots threaded
+ * through three int arrays indexed by slot (cell, prev, next), so moving a
+ * Zombie from one cell to another is a couple of array writes and nothing
+ * is allocated. After the systems move Zombies, update() puts every one
+ * that crossed into another cell in its new cell; moved() does the same
+ * for one.
+ *
+ * Positions off the edge of the house are kept in the nearest edge cell.
+ * The grid is only used from the thread that moves Zombies (it is shared
+ * by all of them, so it isn't kept up by a ZombieSystem).
+ *
+ * private:
+ * store - the ZombieStore whose slots are in the grid
+ * columns, rows - the number of cells across and down
+ * heads - the first slot in each cell (-1 if none)
+ * cell - the cell each slot is in (-1 if it isn't in the grid)
+ * prev, next - each slot's neighbors in its cell's list (-1 at the ends)
+ * size - the number of Zombies in the grid
+ */
+public class ZombieGrid
+{
+  /**
+   * the width and height of a cell in Tiles
+   */
+  public static final int CELL_SIZE = 2;
+
+  private final ZombieStore store;
+  private final int columns, rows;
+  private final int[] heads;
+  private int[] cell = new int[0];
+  private int[] prev = new int[0];
+  private int[] next = new int[0];
+  private int size = 0;
+
+  /**
+   * @param store the ZombieStore whose slots go in the grid
+   * @param width the house's width in Tiles
+   * @param height the house's height in Tiles
+   */
+  public ZombieGrid(ZombieStore store, int width, int height)
+  {
+    this.store = store;
+    columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+    rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+    heads = new int[columns * rows];
+    Arrays.fill(heads, -1);
+  }
+
+  /**
+   * Makes a grid the size of house and puts every slot of store in it
+   */
+  public static ZombieGrid build(int width, int height, ZombieStore store)
+  {
+    ZombieGrid grid = new ZombieGrid(store, width, height);
+    for(int slot = 0; slot < store.size(); slot++) { grid.add(slot); }
+    return grid;
+  }
+
+  public ZombieStore getStore() { return store; }
+
+  private int column(double x) { return Math.min(columns - 1, Math.max(0, (int)Math.floor(x / CELL_SIZE))); }
+
+  private int row(double y) { return Math.min(rows - 1, Math.max(0, (int)Math.floor(y / CELL_SIZE))); }
+
+  private int cellOf(int slot) { return column(store.getX(slot)) * rows + row(store.getY(slot)); }
+
+  /**
+   * Puts slot in the cell of its current position
+   */
+  public void add(int slot)
+  {
+    if(slot >= cell.length)
+    {
+      int capacity = Math.max(slot + 1, cell.length * 2);
+      int old = cell.length;
+      cell = Arrays.copyOf(cell, capacity);
+      prev = Arrays.copyOf(prev, capacity);
+      next = Arrays.copyOf(next, capacity);
+      Arrays.fill(cell, old, capacity, -1);
+    }
+    if(cell[slot] != -1) { remove(slot); }
+    link(slot, cellOf(slot));
+    size++;
+  }
+
+  /**
+   * Takes slot out of the grid
+   */
+  public void remove(int slot)
+  {
+    if(!contains(slot)) { return; }
+    unlink(slot);
+    size--;
+  }
+
+  /**
+   * @return true if slot is in the grid
+   */
+  public boolean contains(int slot)
+  {
+    return slot >= 0 && slot < cell.length && cell[slot] != -1;
+  }
+
+  /**
+   * Moves slot to the cell of its current position, if it changed cell
+   */
+  public void moved(int slot)
+  {
+    if(!contains(slot)) { return; }
+    int now = cellOf(slot);
+    if(now == cell[slot]) { return; }
+    unlink(slot);
+    link(slot, now);
+  }
+
+  /**
+   * moved() for every slot in the grid; run after the systems that move Zombies
+   */
+  public void update()
+  {
+    final int[] cell = this.cell;
+    final double[] x = store.x, y = store.y;
+    int slots = Math.min(cell.length, store.size());
+    for(int slot = 0; slot < slots; slot++)
+    {
+      if(cell[slot] == -1) { continue; }
+      int now = column(x[slot]) * rows + row(y[slot]);
+      if(now == cell[slot]) { continue; }
+      unlink(slot);
+      link(slot, now);
+    }
+  }
+
+  private void link(int slot, int to)
+  {
+    cell[slot] = to;
+    prev[slot] = -1;
+    next[slot] = heads[to];
+    if(heads[to] != -1) { prev[heads[to]] = slot; }
+    heads[to] = slot;
+  }
+
+  private void unlink(int slot)
+  {
+    if(prev[slot] != -1) { next[prev[slot]] = next[slot]; }
+    else                 { heads[cell[slot]] = next[slot]; }
+    if(next[slot] != -1) { prev[next[slot]] = prev[slot]; }
+    cell[slot] = -1;
+    prev[slot] = -1;
+    next[slot] = -1;
+  }
+
+  /**
+   * @return true if a Zombie other than the one in slot is within radius of it
+   */
+  public boolean anyWithin(int slot, double radius)
+  {
+    double x = store.getX(slot);
+    double y = store.getY(slot);
+    double radiusSquared = radius * radius;
+    int lastColumn = column(x + radius);
+    int lastRow = row(y + radius);
+    for(int c = column(x - radius); c <= lastColumn; c++)
+    {
+      for(int r = row(y - radius); r <= lastRow; r++)
+      {
+        for(int other = heads[c * rows + r]; other != -1; other = next[other])
+        {
+          if(other == slot) { continue; }
+          double diffX = store.getX(other) - x;
+          double diffY = store.getY(other) - y;
+          if(diffX * diffX + diffY * diffY <= radiusSquared) { return true; }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of Zombies in the grid
+   */
+  public int size() { return size; }
+
+  /**
+   * Empties the grid
+   */
+  public void clear()
+  {
+    Arrays.fill(heads, -1);
+    Arrays.fill(cell, -1);
+    Arrays.fill(prev, -1);
+    Arrays.fill(next, -1);
+    size = 0;
+  }
+}
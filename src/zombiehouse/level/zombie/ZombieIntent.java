@@ -0,0 +1,58 @@
+package zombiehouse.level.zombie;
+
+import zombiehouse.level.house.NavGraph;
+
+/**
+ * ZombieIntent is what a Zombie decided to do, handed from the AI threads
+ * to the game: which way it wants to head, whether it is hunting the Player
+ * and the path it found. The AI makes a new one after every decision (the
+ * Zombie keeps it in a volatile field) and never changes it, so the game can
+ * read it at any time without locks and apply it when it moves the Zombie
+ * (Zombie.applyIntent()). This is the only way a decision reaches the live
+ * game.
+ *
+ * private:
+ * heading - the direction the Zombie wants to head in degrees, or NaN to
+ *           keep the one it has
+ * hunting - whether the Zombie can smell the Player
+ * path - the NavGraph IDs of the new path to walk (empty to stop walking
+ *        one), or null to keep walking the one it has; never changed
+ * graph - the NavGraph the path's IDs are from
+ * step - the Simulation step of the WorldSnapshot the decision was made on
+ */
+public final class ZombieIntent
+{
+  private final double heading;
+  private final boolean hunting;
+  private final int[] path;
+  private final NavGraph graph;
+  private final long step;
+
+  public ZombieIntent(double heading, boolean hunting, int[] path, NavGraph graph, long step)
+  {
+    this.heading = heading;
+    this.hunting = hunting;
+    this.path = path;
+    this.graph = graph;
+    this.step = step;
+  }
+
+  public double getHeading() { return heading; }
+
+  /**
+   * @return false if the Zombie keeps the heading it has
+   */
+  public boolean hasHeading() { return !Double.isNaN(heading); }
+
+  public boolean isHunting() { return hunting; }
+
+  /**
+   * @return the IDs of the path to switch to (not to be changed), or null
+   *         to keep the current one
+   */
+  int[] getPath() { return path; }
+
+  public NavGraph getGraph() { return graph; }
+
+  public long getStep() { return step; }
+}
@@ -0,0 +1,39 @@
+package zombiehouse.level.zombie;
+
+/**
+ * What kind of Zombie is in a ZombieStore slot, kept as data next to its
+ * position so code looping over the Zombies (the AIScheduler, renderers)
+ * can pick them out by comparing a value rather than with instanceof.
+ * Which way a Zombie decides is still up to its class (makeDecision()).
+ *
+ * PLAIN - a Zombie with no behavior of its own
+ * LINE_WALK - a LineWalkZombie: keeps its heading until it hits something
+ * RANDOM_WALK - a RandomWalkZombie: picks a new heading each decision
+ * MASTER - a MasterZombie: decided after the others, sets them all hunting
+ *          when it smells the Player
+ */
+public enum ZombieKind
+{
+  PLAIN,
+  LINE_WALK,
+  RANDOM_WALK,
+  MASTER;
+
+  private static final ZombieKind[] KINDS = values();
+
+  /**
+   * @return the kind stored as code (its ordinal)
+   */
+  static ZombieKind of(byte code)
+  {
+    return KINDS[code];
+  }
+
+  /**
+   * @return how the kind is stored in a ZombieStore
+   */
+  byte code()
+  {
+    return (byte)ordinal();
+  }
+}
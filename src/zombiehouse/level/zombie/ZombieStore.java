@@ -0,0 +1,366 @@
+package zombiehouse.level.zombie;
+
+import java.util.Arrays;
+import zombiehouse.graphics.Zombie3D;
+
+/**
+ * ZombieStore is the component table of a level's Zombies: every Zombie is
+ * a slot, and each of its components is a column of parallel arrays
+ * indexed by slot instead of a field of the Zombie object:
+ *  - position: x, y, and lastX, lastY from before the last step
+ *  - motion: heading (with its cosine and sine), speed and the state flags
+ *  - kind: which ZombieKind it is
+ *  - smell: how many steps it can smell (smellRange) and how many steps it
+ *    was from the Player at the SmellSystem's last pass (scent)
+ *  - path: the route it is walking (NavGraph IDs, as the ZombieIntent
+ *    handed them over) and how far along it is (routeAt)
+ *  - render: where it is drawn (renderX, renderY), which way it faces and
+ *    which animation frame it is on, and the Zombie3D bound to it (view)
+ * A Zombie is a view of its slot: getPositionX() and the rest read and write
+ * the store.
+ *
+ * The work done to every Zombie is done by systems (ZombieSystem), each a
+ * loop down the few columns it needs over a run of slots: MovementSystem,
+ * PathSystem and CollisionSystem move them, ChaseSystem runs the Simulation's
+ * chase, SmellSystem measures scent and AnimationSystem works out how they
+ * are drawn. ZombieSystems runs them, splitting the slots over the
+ * ForkJoinPool for big hordes. Arrays of doubles stay in cache and the JIT
+ * can unroll loops over them, rather than chasing pointers through
+ * thousands of objects. The cosine and sine of each heading are worked out
+ * once when the heading is set, not every step. The columns are package
+ * private so the systems can loop down them directly.
+ *
+ * Level makes a new store (LevelVar.zombieStore) for every house and the
+ * Zombies ProGen spawns add themselves to it. Like the ZombieGrid it is
+ * only read and written by the thread that moves Zombies (and the systems
+ * it runs); the AI reads the WorldSnapshot instead and hands its decisions
+ * back as ZombieIntents.
+ *
+ * package private (for the systems):
+ * size - the number of slots in use
+ * maxSmellRange - the largest smellRange of any slot
+ * x, y - positions
+ * lastX, lastY - positions before the last step (for drawing in between)
+ * heading - headings in degrees
+ * dirX, dirY - cosine and sine of heading
+ * speed - Tiles per second
+ * state - the flags below
+ * kind - ZombieKind codes
+ * smellRange - steps each Zombie can smell the Player from
+ * scent - steps from the Player (FlowField.UNREACHABLE past maxSmellRange)
+ * route - the NavGraph IDs of the path each is walking (null for none)
+ * routeAt - the index in route of the waypoint it is heading for
+ * renderX, renderY - where it was last drawn
+ * facing - which way (degrees about the vertical) it was last drawn facing
+ * frame, frameStep - its animation frame and which way the frames run (+1 / -1)
+ * view - the Zombie3D drawn for it (null without 3D)
+ */
+public class ZombieStore
+{
+  /**
+   * state flag: the Zombie ran into something and doesn't move until cleared
+   */
+  public static final byte COLLIDED = 1;
+  /**
+   * state flag: the Zombie moved in the last advance()
+   */
+  public static final byte MOVED = 2;
+  /**
+   * state flag: the Zombie was near enough the Player at the AnimationSystem's
+   * last pass to be turned toward the Player and animated
+   */
+  public static final byte IN_VIEW = 4;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  int size = 0;
+  int maxSmellRange = 0;
+  double[] x, y, lastX, lastY, heading, dirX, dirY, speed;
+  byte[] state, kind;
+  int[] smellRange, scent;
+  int[][] route;
+  int[] routeAt;
+  double[] renderX, renderY, facing;
+  byte[] frame, frameStep;
+  Zombie3D[] view;
+
+  public ZombieStore()
+  {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param capacity how many Zombies to make room for before growing
+   */
+  public ZombieStore(int capacity)
+  {
+    capacity = Math.max(1, capacity);
+    x = new double[capacity];
+    y = new double[capacity];
+    lastX = new double[capacity];
+    lastY = new double[capacity];
+    heading = new double[capacity];
+    dirX = new double[capacity];
+    dirY = new double[capacity];
+    speed = new double[capacity];
+    state = new byte[capacity];
+    kind = new byte[capacity];
+    smellRange = new int[capacity];
+    scent = new int[capacity];
+    route = new int[capacity][];
+    routeAt = new int[capacity];
+    renderX = new double[capacity];
+    renderY = new double[capacity];
+    facing = new double[capacity];
+    frame = new byte[capacity];
+    frameStep = new byte[capacity];
+    view = new Zombie3D[capacity];
+  }
+
+  /**
+   * Gives a new Zombie a slot
+   * @return the slot
+   */
+  public int add(double posX, double posY, double degrees, double tilesPerSecond, int smellSteps, ZombieKind zombieKind)
+  {
+    if(size == x.length) { grow(); }
+    int slot = size++;
+    x[slot] = lastX[slot] = renderX[slot] = posX;
+    y[slot] = lastY[slot] = renderY[slot] = posY;
+    speed[slot] = tilesPerSecond;
+    state[slot] = 0;
+    kind[slot] = zombieKind.code();
+    setSmellRange(slot, smellSteps);
+    scent[slot] = FlowField.UNREACHABLE;
+    route[slot] = null;
+    routeAt[slot] = 0;
+    facing[slot] = 0;
+    frame[slot] = 0;
+    frameStep[slot] = 1;
+    view[slot] = null;
+    setHeading(slot, degrees);
+    return slot;
+  }
+
+  private void grow()
+  {
+    int capacity = x.length * 2;
+    x = Arrays.copyOf(x, capacity);
+    y = Arrays.copyOf(y, capacity);
+    lastX = Arrays.copyOf(lastX, capacity);
+    lastY = Arrays.copyOf(lastY, capacity);
+    heading = Arrays.copyOf(heading, capacity);
+    dirX = Arrays.copyOf(dirX, capacity);
+    dirY = Arrays.copyOf(dirY, capacity);
+    speed = Arrays.copyOf(speed, capacity);
+    state = Arrays.copyOf(state, capacity);
+    kind = Arrays.copyOf(kind, capacity);
+    smellRange = Arrays.copyOf(smellRange, capacity);
+    scent = Arrays.copyOf(scent, capacity);
+    route = Arrays.copyOf(route, capacity);
+    routeAt = Arrays.copyOf(routeAt, capacity);
+    renderX = Arrays.copyOf(renderX, capacity);
+    renderY = Arrays.copyOf(renderY, capacity);
+    facing = Arrays.copyOf(facing, capacity);
+    frame = Arrays.copyOf(frame, capacity);
+    frameStep = Arrays.copyOf(frameStep, capacity);
+    view = Arrays.copyOf(view, capacity);
+  }
+
+  /**
+   * @return the number of Zombies in the store (slots are 0 to size() - 1)
+   */
+  public int size() { return size; }
+
+  public double getX(int slot) { return x[slot]; }
+
+  public double getY(int slot) { return y[slot]; }
+
+  public void setX(int slot, double value) { x[slot] = value; }
+
+  public void setY(int slot, double value) { y[slot] = value; }
+
+  public double getLastX(int slot) { return lastX[slot]; }
+
+  public double getLastY(int slot) { return lastY[slot]; }
+
+  public double getHeading(int slot) { return heading[slot]; }
+
+  /**
+   * Sets a heading and the direction it points in
+   */
+  public void setHeading(int slot, double degrees)
+  {
+    double radians = Math.toRadians(degrees);
+    heading[slot] = degrees;
+    dirX[slot] = Math.cos(radians);
+    dirY[slot] = Math.sin(radians);
+  }
+
+  public double getSpeed(int slot) { return speed[slot]; }
+
+  public void setSpeed(int slot, double tilesPerSecond) { speed[slot] = tilesPerSecond; }
+
+  public ZombieKind getKind(int slot) { return ZombieKind.of(kind[slot]); }
+
+  /**
+   * @return how many Zombies of the given kind there are
+   */
+  public int count(ZombieKind zombieKind)
+  {
+    final byte[] kind = this.kind;
+    final byte code = zombieKind.code();
+    int count = 0;
+    for(int i = 0; i < size; i++)
+    {
+      if(kind[i] == code) { count++; }
+    }
+    return count;
+  }
+
+  public int getSmellRange(int slot) { return smellRange[slot]; }
+
+  public void setSmellRange(int slot, int steps)
+  {
+    smellRange[slot] = steps;
+    maxSmellRange = Math.max(maxSmellRange, steps);
+  }
+
+  /**
+   * @return the largest smellRange in the store (how far the SmellSystem measures)
+   */
+  public int getMaxSmellRange() { return maxSmellRange; }
+
+  /**
+   * @return the steps from the Zombie to the Player at the SmellSystem's last
+   *         pass, or FlowField.UNREACHABLE if further than getMaxSmellRange()
+   */
+  public int getScent(int slot) { return scent[slot]; }
+
+  /**
+   * @return the NavGraph IDs of the route the Zombie walks (not to be
+   *         changed), or null if it has none
+   */
+  public int[] getRoute(int slot) { return route[slot]; }
+
+  /**
+   * @return the index in getRoute() of the waypoint the Zombie is heading for
+   */
+  public int getRouteAt(int slot) { return routeAt[slot]; }
+
+  /**
+   * Gives the Zombie a route to walk from its first waypoint; ids is kept,
+   * not copied, so it must not be changed afterward
+   * @param ids NavGraph IDs, or null (or empty) for no route
+   */
+  public void setRoute(int slot, int[] ids)
+  {
+    route[slot] = (ids == null || ids.length == 0) ? null : ids;
+    routeAt[slot] = 0;
+  }
+
+  public double getRenderX(int slot) { return renderX[slot]; }
+
+  public double getRenderY(int slot) { return renderY[slot]; }
+
+  public double getFacing(int slot) { return facing[slot]; }
+
+  public int getFrame(int slot) { return frame[slot]; }
+
+  public void setFrame(int slot, int value) { frame[slot] = (byte)value; }
+
+  public Zombie3D getView(int slot) { return view[slot]; }
+
+  public void setView(int slot, Zombie3D zombie3D) { view[slot] = zombie3D; }
+
+  public boolean is(int slot, byte flag) { return (state[slot] & flag) != 0; }
+
+  public void set(int slot, byte flag, boolean value)
+  {
+    if(value) { state[slot] |= flag; }
+    else      { state[slot] &= ~flag; }
+  }
+
+  /**
+   * Remembers every position as the one before the step about to be taken
+   */
+  public void saveLastPositions()
+  {
+    System.arraycopy(x, 0, lastX, 0, size);
+    System.arraycopy(y, 0, lastY, 0, size);
+  }
+
+  /**
+   * Works out the squared straight line distance from (px, py) to every
+   * Zombie, indexed by slot. The loop has no branches and only touches the
+   * position arrays, so HotSpot's loop vectorizer can do several slots per
+   * instruction.
+   * @param out where to put the distances, or null (or too short) to have
+   *            a new array made
+   * @return out, or the new array
+   */
+  public double[] distanceSquaredTo(double px, double py, double[] out)
+  {
+    if(out == null || out.length < size) { out = new double[x.length]; }
+    final double[] x = this.x, y = this.y;
+    for(int i = 0; i < size; i++)
+    {
+      double dx = x[i] - px;
+      double dy = y[i] - py;
+      out[i] = dx * dx + dy * dy;
+    }
+    return out;
+  }
+
+  /**
+   * @return the squared straight line distance from (px, py) to the
+   *         nearest Zombie (infinity if there are none)
+   */
+  public double minDistanceSquaredTo(double px, double py)
+  {
+    final double[] x = this.x, y = this.y;
+    double min = Double.POSITIVE_INFINITY;
+    for(int i = 0; i < size; i++)
+    {
+      double dx = x[i] - px;
+      double dy = y[i] - py;
+      min = Math.min(min, dx * dx + dy * dy);
+    }
+    return min;
+  }
+
+  /**
+   * Moves every Zombie that isn't COLLIDED along its heading at its speed
+   * for the given time. Zombies outside (0, maxX] x (0, maxY] are left
+   * where they are. Sets MOVED on the ones that moved and clears it on the
+   * rest. This is the MovementSystem run over every slot (split over the
+   * ForkJoinPool for big hordes, see ZombieSystems).
+   */
+  public void advance(double seconds, double maxX, double maxY)
+  {
+    ZombieSystems.run(this, new MovementSystem(seconds, maxX, maxY));
+  }
+
+  /**
+   * advance() for the slots from up to (not including) to
+   */
+  public void advance(int from, int to, double seconds, double maxX, double maxY)
+  {
+    final double[] x = this.x, y = this.y, dirX = this.dirX, dirY = this.dirY, speed = this.speed;
+    final byte[] state = this.state;
+    for(int i = from; i < to; i++)
+    {
+      double px = x[i];
+      double py = y[i];
+      int flags = state[i] & ~MOVED;
+      if((flags & COLLIDED) == 0 && px > 0 && px <= maxX && py > 0 && py <= maxY)
+      {
+        double distance = speed[i] * seconds;
+        x[i] = px + dirX[i] * distance;
+        y[i] = py + dirY[i] * distance;
+        flags |= MOVED;
+      }
+      state[i] = (byte)flags;
+    }
+  }
+}
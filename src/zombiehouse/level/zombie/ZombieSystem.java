@@ -0,0 +1,18 @@
+package zombiehouse.level.zombie;
+
+/**
+ * A ZombieSystem is one kind of work done to every Zombie - moving them,
+ * keeping them out of Walls, measuring their scent - written as a loop down
+ * the ZombieStore columns it needs rather than as a method of Zombie.
+ *
+ * A system is run over a run of slots at a time (see ZombieSystems), so it
+ * must only write the columns of the slots it is given. It may read any slot
+ * of a column that none of the systems run alongside it writes.
+ */
+public interface ZombieSystem
+{
+  /**
+   * Does the system's work for the slots from up to (not including) to
+   */
+  void run(ZombieStore store, int from, int to);
+}
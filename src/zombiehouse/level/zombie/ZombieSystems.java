@@ -0,0 +1,77 @@
+package zombiehouse.level.zombie;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ZombieSystems runs ZombieSystems over every slot of a ZombieStore.
+ *
+ * Systems given to one run() are run together: each run of slots goes
+ * through all of them in the order given, so a slot is moved before it is
+ * kept out of the Walls, say, without a second pass over the store. With
+ * more than PARALLEL_THRESHOLD Zombies the slots are split into runs done at
+ * once on the common ForkJoinPool, and run() returns once all of them are.
+ * That is safe because a system only writes the columns of its own slots;
+ * systems that read other slots of a column one of them writes (or write
+ * something shared, like the ZombieGrid) have to be run on their own.
+ */
+public class ZombieSystems
+{
+  /**
+   * runs of up to this many slots are done on one thread; fewer Zombies
+   * than this are done without the ForkJoinPool
+   */
+  public static final int PARALLEL_THRESHOLD = 4096;
+
+  /**
+   * Runs systems, in order, over every slot of store
+   */
+  public static void run(ZombieStore store, ZombieSystem... systems)
+  {
+    int size = store.size();
+    if(size <= PARALLEL_THRESHOLD) { run(store, 0, size, systems); }
+    else { ForkJoinPool.commonPool().invoke(new Chunk(store, 0, size, systems)); }
+  }
+
+  /**
+   * Runs systems, in order, over the slots from up to (not including) to,
+   * on this thread
+   */
+  public static void run(ZombieStore store, int from, int to, ZombieSystem... systems)
+  {
+    for(ZombieSystem system : systems) { system.run(store, from, to); }
+  }
+
+  /**
+   * A run of slots done one after another, or split in two and forked if
+   * there are more than PARALLEL_THRESHOLD
+   */
+  private static class Chunk extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final ZombieStore store;
+    private final int from, to;
+    private final ZombieSystem[] systems;
+
+    Chunk(ZombieStore store, int from, int to, ZombieSystem[] systems)
+    {
+      this.store = store;
+      this.from = from;
+      this.to = to;
+      this.systems = systems;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if(to - from <= PARALLEL_THRESHOLD)
+      {
+        run(store, from, to, systems);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new Chunk(store, from, middle, systems), new Chunk(store, middle, to, systems));
+    }
+  }
+}
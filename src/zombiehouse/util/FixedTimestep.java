@@ -0,0 +1,94 @@
+package zombiehouse.util;
+
+/**
+ * FixedTimestep turns the uneven time between rendered frames into a whole
+ * number of fixed length simulation steps ("fix your timestep").
+ *
+ * Each frame, advance() adds the time since the last frame to an accumulator
+ * and takes as many whole steps out of it as fit; what is left over (less
+ * than one step) is carried to the next frame. getAlpha() says how far the
+ * leftover is into the next step, so rendering can draw everything that much
+ * of the way between the last two simulated states.
+ *
+ * A very slow frame (a hitch, the window being dragged) could ask for so
+ * many steps that simulating them makes the next frame slow too. At most
+ * maxSteps are run per frame and any time beyond that is dropped, so the
+ * game slows down for a moment instead of spiralling.
+ *
+ * private:
+ * stepNanos - the length of one step
+ * maxSteps - the most steps advance() hands out at once
+ * lastTime - the time passed to the last advance() (-1 before the first)
+ * accumulator - time not yet simulated
+ * droppedNanos - time thrown away because of maxSteps
+ */
+public class FixedTimestep
+{
+  private final long stepNanos;
+  private final int maxSteps;
+  private long lastTime = -1;
+  private long accumulator = 0;
+  private long droppedNanos = 0;
+
+  /**
+   * @param stepsPerSecond how many steps make up a second (e.g. 60)
+   * @param maxSteps the most steps to run for a single frame
+   */
+  public FixedTimestep(double stepsPerSecond, int maxSteps)
+  {
+    this.stepNanos = (long)(1000000000L / stepsPerSecond);
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * @param now the current time in nanoseconds (System.nanoTime() or the
+   *            time an AnimationTimer is handed)
+   * @return how many steps to simulate this frame
+   */
+  public int advance(long now)
+  {
+    if(lastTime < 0)
+    {
+      lastTime = now;
+      return 0;
+    }
+    accumulator += Math.max(0, now - lastTime);
+    lastTime = now;
+    long steps = accumulator / stepNanos;
+    if(steps > maxSteps)
+    {
+      droppedNanos += (steps - maxSteps) * stepNanos;
+      steps = maxSteps;
+      accumulator = accumulator % stepNanos;
+    }
+    else
+    {
+      accumulator -= steps * stepNanos;
+    }
+    return (int)steps;
+  }
+
+  /**
+   * @return how far (0 to 1) the time not yet simulated is into the next step
+   */
+  public double getAlpha() { return (double)accumulator / stepNanos; }
+
+  /**
+   * @return the length of a step in seconds
+   */
+  public double getStepSeconds() { return stepNanos / 1e9; }
+
+  /**
+   * Forgets the time not yet simulated, e.g. after a level is loaded
+   */
+  public void reset()
+  {
+    lastTime = -1;
+    accumulator = 0;
+  }
+
+  /**
+   * @return the total time dropped because frames asked for more than maxSteps
+   */
+  public long getDroppedNanos() { return droppedNanos; }
+}
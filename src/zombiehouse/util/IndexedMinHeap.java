@@ -0,0 +1,190 @@
+package zombiehouse.util;
+
+/**
+ * IndexedMinHeap is a binary min-heap of int IDs ordered by long priorities
+ * that also knows where every ID sits in the heap, so an ID's priority can be
+ * lowered in place (decrease-key) instead of adding the ID a second time,
+ * and any ID can be re-keyed or taken out from the middle.
+ *
+ * IDs must be in [0, capacity) as given to clear(). Nothing is boxed and
+ * nothing is allocated unless the capacity grows, so one heap can be reused
+ * for search after search.
+ *
+ * private:
+ * heap - the IDs in heap order (only the first size are live)
+ * priority - the priority of the ID at the same heap position
+ * position - where each ID is in heap; only trusted if heap[position[id]] == id,
+ *            which means clear() never has to reset it
+ */
+public class IndexedMinHeap
+{
+  private int[] heap = new int[0];
+  private long[] priority = new long[0];
+  private int[] position = new int[0];
+  private int size = 0;
+
+  /**
+   * Empties the heap and makes sure it can hold IDs up to capacity - 1
+   * @param capacity one more than the largest ID that will be added
+   */
+  public void clear(int capacity)
+  {
+    if(position.length < capacity)
+    {
+      heap = new int[capacity];
+      priority = new long[capacity];
+      position = new int[capacity];
+    }
+    size = 0;
+  }
+
+  public boolean isEmpty() { return size == 0; }
+
+  public int size() { return size; }
+
+  /**
+   * @return true if id is currently in the heap
+   */
+  public boolean contains(int id)
+  {
+    int pos = position[id];
+    return pos < size && heap[pos] == id;
+  }
+
+  /**
+   * @return the current priority of id (only meaningful if contains(id))
+   */
+  public long getPriority(int id) { return priority[position[id]]; }
+
+  /**
+   * Adds id with the given priority, or lowers its priority if it is already
+   * in the heap with a higher one
+   * @return true if the heap changed
+   */
+  public boolean addOrDecrease(int id, long newPriority)
+  {
+    if(!contains(id))
+    {
+      add(id, newPriority);
+      return true;
+    }
+    if(newPriority >= priority[position[id]]) { return false; }
+    decreaseKey(id, newPriority);
+    return true;
+  }
+
+  /**
+   * Adds an ID that is not yet in the heap
+   */
+  public void add(int id, long newPriority)
+  {
+    heap[size] = id;
+    priority[size] = newPriority;
+    position[id] = size;
+    size++;
+    siftUp(size - 1);
+  }
+
+  /**
+   * Lowers the priority of an ID already in the heap
+   */
+  public void decreaseKey(int id, long newPriority)
+  {
+    int pos = position[id];
+    priority[pos] = newPriority;
+    siftUp(pos);
+  }
+
+  /**
+   * Changes the priority of an ID already in the heap, up or down
+   */
+  public void update(int id, long newPriority)
+  {
+    int pos = position[id];
+    long oldPriority = priority[pos];
+    priority[pos] = newPriority;
+    if(newPriority < oldPriority) { siftUp(pos); }
+    else                          { siftDown(pos); }
+  }
+
+  /**
+   * Takes id out of the heap if it is in it
+   */
+  public void remove(int id)
+  {
+    if(!contains(id)) { return; }
+    int pos = position[id];
+    size--;
+    if(pos == size) { return; }
+    long oldPriority = priority[pos];
+    move(size, pos);
+    if(priority[pos] < oldPriority) { siftUp(pos); }
+    else                            { siftDown(pos); }
+  }
+
+  /**
+   * @return the ID poll() would return, without removing it
+   */
+  public int peek() { return heap[0]; }
+
+  /**
+   * @return the priority of the ID poll() would return
+   */
+  public long peekPriority() { return priority[0]; }
+
+  /**
+   * Removes and returns the ID with the lowest priority
+   */
+  public int poll()
+  {
+    int top = heap[0];
+    size--;
+    if(size > 0)
+    {
+      move(size, 0);
+      siftDown(0);
+    }
+    return top;
+  }
+
+  private void siftUp(int pos)
+  {
+    int id = heap[pos];
+    long prio = priority[pos];
+    while(pos > 0)
+    {
+      int parent = (pos - 1) >> 1;
+      if(priority[parent] <= prio) { break; }
+      move(parent, pos);
+      pos = parent;
+    }
+    heap[pos] = id;
+    priority[pos] = prio;
+    position[id] = pos;
+  }
+
+  private void siftDown(int pos)
+  {
+    int id = heap[pos];
+    long prio = priority[pos];
+    while(true)
+    {
+      int child = (pos << 1) + 1;
+      if(child >= size) { break; }
+      if(child + 1 < size && priority[child + 1] < priority[child]) { child++; }
+      if(priority[child] >= prio) { break; }
+      move(child, pos);
+      pos = child;
+    }
+    heap[pos] = id;
+    priority[pos] = prio;
+    position[id] = pos;
+  }
+
+  private void move(int from, int to)
+  {
+    heap[to] = heap[from];
+    priority[to] = priority[from];
+    position[heap[to]] = to;
+  }
+}